@@ -16,20 +16,44 @@ import java.util.stream.Collectors;
  * See the specification for information about what the different visit
  * methods should do.
  */
-public final class Analyzer implements Ast.Visitor<Void> {
+public final class Analyzer extends Traversal {
 
     public Scope scope;
     private Ast.Method method;
+    private final TypeRegistry types;
 
     public Analyzer(Scope parent) {
+        this(parent, Environment.getTypes());
+    }
+
+    public Analyzer(Scope parent, TypeRegistry types) {
+        this.types = types;
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
     }
 
+    /**
+     * Creates an analyzer working directly in {@code scope}, which already
+     * defines the builtin functions, see {@link ParallelAnalyzer}.
+     */
+    static Analyzer within(Scope scope, TypeRegistry types) {
+        Analyzer analyzer = new Analyzer(types);
+        analyzer.scope = scope;
+        return analyzer;
+    }
+
+    private Analyzer(TypeRegistry types) {
+        this.types = types;
+    }
+
     public Scope getScope() {
         return scope;
     }
 
+    TypeRegistry getTypes() {
+        return types;
+    }
+
     @Override
     public Void visit(Ast.Source ast) {
         // lookupFunction throws runtimeException if it doesn't exit
@@ -39,8 +63,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
             throw new RuntimeException("Main needs to return an Integer type.");
 
         // visit fields followed by methods
-        ast.getFields().forEach(this::visit);
-        ast.getMethods().forEach(this::visit);
+        visit(ast.getFields());
+        visit(ast.getMethods());
 
         return null;
     }
@@ -51,53 +75,68 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if (ast.getValue().isPresent())
             visit(ast.getValue().get());
 
-        // define and set variable in current scope
-        Environment.Variable var = scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getName()), Environment.NIL);
-        ast.setVariable(var);
+        then(() -> {
+            // define and set variable in current scope
+            Environment.Variable var = scope.defineVariable(ast.getName(), ast.getName(), types.getType(ast.getName()), Environment.NIL);
+            ast.setVariable(var);
 
-        // check that value is of the same type as the name of ast
-        if (ast.getValue().get().getType() != Environment.getType(ast.getName()))
-            throw new RuntimeException("Value is not assignable to the field.");
+            // check that value is of the same type as the name of ast
+            if (ast.getValue().get().getType() != types.getType(ast.getName()))
+                throw new RuntimeException("Value is not assignable to the field.");
+        });
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Method ast) {
+        declare(ast);
+        visitBody(ast);
+
+        return null;
+    }
+
+    /**
+     * Defines the method's function in the current scope.
+     */
+    void declare(Ast.Method ast) {
         // create list of parameters and populate it
         List<Environment.Type> typeList = new ArrayList<>();
         for (int i = 0; i < ast.getParameters().size(); i++)
-            typeList.add(i, Environment.getType(ast.getParameters().get(i)));
+            typeList.add(i, types.getType(ast.getParameters().get(i)));
 
         // if return type name is present, store it in variable
         Environment.Type type;
         if (ast.getReturnTypeName().isPresent()) {
-            type = Environment.getType(ast.getReturnTypeName().get());
+            type = types.getType(ast.getReturnTypeName().get());
         }
         // if not, define and set function in current scope with null return type
         else
             type = Environment.Type.NIL;
         Environment.Function func = scope.defineFunction(ast.getName(), ast.getName(), typeList, type, args -> Environment.NIL);
         ast.setFunction(func);
+    }
 
+    /**
+     * Analyzes the parameters and statements of a method which has been
+     * declared.
+     */
+    void visitBody(Ast.Method ast) {
         // define variable for each parameter
-        try {
+        Ast.Method meth = method;
+        then(() -> {
             scope = new Scope(scope);
             for (int i = 0; i < ast.getParameters().size(); i++) {
-                scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), Environment.getType(ast.getParameters().get(i)), Environment.NIL);
+                scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), types.getType(ast.getParameters().get(i)), Environment.NIL);
             }
             // snapshot of method before return function, visit statements, and then restore snapshot
-            // maybe better method?
-            Ast.Method meth = method;
             method = ast;
-            ast.getStatements().forEach(this::visit);
+        });
+        visit(ast.getStatements());
+        then(() -> {
             method = meth;
-        }
-        finally {
             scope = scope.getParent();
-        }
-
-        return null;
+        });
     }
 
     @Override
@@ -141,24 +180,29 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         // if type is present, store in variable
         if (ast.getTypeName().isPresent()) {
-            type = Environment.getType(ast.getTypeName().get());
+            type = types.getType(ast.getTypeName().get());
         }
 
         // if value is present, visit value and store if type is present
         if (ast.getValue().isPresent()) {
-
             visit(ast.getValue().get());
+        }
 
-            // if (!ast.getTypeName().isPresent())
-            if (type == null) {
-                type = ast.getValue().get().getType();
-            }
+        Environment.Type declared = type;
+        then(() -> {
+            Environment.Type variable = declared;
+            if (ast.getValue().isPresent()) {
+                // if (!ast.getTypeName().isPresent())
+                if (variable == null) {
+                    variable = ast.getValue().get().getType();
+                }
 
-            requireAssignable(type, ast.getValue().get().getType());
-        }
+                requireAssignable(variable, ast.getValue().get().getType());
+            }
 
-        // define and set variable
-        ast.setVariable(scope.defineVariable(ast.getName(), ast.getName(), type, Environment.NIL));
+            // define and set variable
+            ast.setVariable(scope.defineVariable(ast.getName(), ast.getName(), variable, Environment.NIL));
+        });
 
         return null;
     }
@@ -169,11 +213,13 @@ public final class Analyzer implements Ast.Visitor<Void> {
         visit(ast.getValue());
         visit(ast.getReceiver());
 
-        // if receiver is not of type access, return exception
-        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
-            throw new RuntimeException("Receiver is not an access expression.");
-        }
-        requireAssignable(ast.getValue().getType(), ast.getReceiver().getType());
+        then(() -> {
+            // if receiver is not of type access, return exception
+            if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+                throw new RuntimeException("Receiver is not an access expression.");
+            }
+            requireAssignable(ast.getValue().getType(), ast.getReceiver().getType());
+        });
 
         return null;
     }
@@ -182,25 +228,27 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Stmt.If ast) {
         visit(ast.getCondition());
 
-        if (!ast.getCondition().getType().equals(Environment.Type.BOOLEAN))
-            throw new RuntimeException("Condition is not of type boolean.");
+        then(() -> {
+            if (!ast.getCondition().getType().equals(Environment.Type.BOOLEAN))
+                throw new RuntimeException("Condition is not of type boolean.");
 
-        if (ast.getThenStatements().size() == 0)
-            throw new RuntimeException("thenStatements list is empty.");
+            if (ast.getThenStatements().size() == 0)
+                throw new RuntimeException("thenStatements list is empty.");
 
-        // visit each statement in their own scope
-        for (int i = 0; i < ast.getThenStatements().size(); i++) {
-            scope = new Scope(scope);
-            visit(ast.getThenStatements().get(i));
-            scope = scope.getParent();
-        }
+            // visit each statement in their own scope
+            for (int i = 0; i < ast.getThenStatements().size(); i++) {
+                then(() -> scope = new Scope(scope));
+                visit(ast.getThenStatements().get(i));
+                then(() -> scope = scope.getParent());
+            }
 
-        // same thing except with else statements
-        for (int i = 0; i < ast.getElseStatements().size(); i++) {
-            scope = new Scope(scope);
-            visit(ast.getElseStatements().get(i));
-            scope = scope.getParent();
-        }
+            // same thing except with else statements
+            for (int i = 0; i < ast.getElseStatements().size(); i++) {
+                then(() -> scope = new Scope(scope));
+                visit(ast.getElseStatements().get(i));
+                then(() -> scope = scope.getParent());
+            }
+        });
 
         return null;
     }
@@ -214,9 +262,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
             throw new RuntimeException("The statements list is empty.");
 
         // visit statements in new scope and define a variable for the ast
-        scope = new Scope(scope);
-        ast.getStatements().forEach(this::visit);
-        scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.INTEGER, Environment.NIL);
+        then(() -> scope = new Scope(scope));
+        visit(ast.getStatements());
+        then(() -> scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.INTEGER, Environment.NIL));
 
         return null;
     }
@@ -225,24 +273,20 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Stmt.While ast) {
         // visit condition and require that is it boolean type
         visit(ast.getCondition());
-        requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
-        // new scope, visit stmts
-        try {
+        then(() -> {
+            requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
+            // new scope, visit stmts
             scope = new Scope(scope);
-            for (Ast.Stmt stmt : ast.getStatements()) {
-                visit(stmt);
-            }
-        }
-        finally {
-            scope = scope.getParent();
-        }
+        });
+        visit(ast.getStatements());
+        then(() -> scope = scope.getParent());
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.Return ast) {
         // require that value is assignable to return type of method it is in
-        requireAssignable(ast.getValue().getType(), Environment.getType(method.getReturnTypeName().get()));
+        requireAssignable(ast.getValue().getType(), types.getType(method.getReturnTypeName().get()));
 
         return null;
     }
@@ -292,39 +336,41 @@ public final class Analyzer implements Ast.Visitor<Void> {
         visit(ast.getLeft());
         visit(ast.getRight());
 
-        if (ast.getOperator().equals("AND") || ast.getOperator().equals("OR")) {
-            requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
-            ast.setType(Environment.Type.BOOLEAN);
-        }
-        else if (ast.getOperator().equals("<") || ast.getOperator().equals("<=") || ast.getOperator().equals(">") || ast.getOperator().equals(">=") || ast.getOperator().equals("==") || ast.getOperator().equals("!=")) {
-            requireAssignable(Environment.Type.COMPARABLE, ast.getRight().getType());
-            requireAssignable(Environment.Type.COMPARABLE, ast.getLeft().getType());
-            requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
-            ast.setType(Environment.Type.BOOLEAN);
-        }
-        else if (ast.getOperator().equals("+")) {
-            if (ast.getLeft().getType().equals(Environment.Type.STRING) || ast.getRight().getType().equals(Environment.Type.STRING)) {
-                ast.setType(Environment.Type.STRING);
-            }
-            else if (ast.getLeft().getType().equals(Environment.Type.INTEGER) || ast.getLeft().getType().equals(Environment.Type.DECIMAL)) {
+        then(() -> {
+            if (ast.getOperator().equals("AND") || ast.getOperator().equals("OR")) {
                 requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
-                Environment.Type type = ast.getLeft().getType();
-                ast.setType(type);
-            }
-            else {
-                throw new RuntimeException("Incorrect use of '+' operator.");
+                ast.setType(Environment.Type.BOOLEAN);
             }
-        }
-        else if (ast.getOperator().equals("-") || ast.getOperator().equals("*") || ast.getOperator().equals("/")) {
-            if (ast.getLeft().getType().equals(Environment.Type.INTEGER) || ast.getLeft().getType().equals(Environment.Type.DECIMAL)) {
+            else if (ast.getOperator().equals("<") || ast.getOperator().equals("<=") || ast.getOperator().equals(">") || ast.getOperator().equals(">=") || ast.getOperator().equals("==") || ast.getOperator().equals("!=")) {
+                requireAssignable(Environment.Type.COMPARABLE, ast.getRight().getType());
+                requireAssignable(Environment.Type.COMPARABLE, ast.getLeft().getType());
                 requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
-                Environment.Type type = ast.getLeft().getType();
-                ast.setType(type);
+                ast.setType(Environment.Type.BOOLEAN);
             }
-            else {
-                throw new RuntimeException("Incorrect us of '-', '*', or '/' operator.");
+            else if (ast.getOperator().equals("+")) {
+                if (ast.getLeft().getType().equals(Environment.Type.STRING) || ast.getRight().getType().equals(Environment.Type.STRING)) {
+                    ast.setType(Environment.Type.STRING);
+                }
+                else if (ast.getLeft().getType().equals(Environment.Type.INTEGER) || ast.getLeft().getType().equals(Environment.Type.DECIMAL)) {
+                    requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
+                    Environment.Type type = ast.getLeft().getType();
+                    ast.setType(type);
+                }
+                else {
+                    throw new RuntimeException("Incorrect use of '+' operator.");
+                }
             }
-        }
+            else if (ast.getOperator().equals("-") || ast.getOperator().equals("*") || ast.getOperator().equals("/")) {
+                if (ast.getLeft().getType().equals(Environment.Type.INTEGER) || ast.getLeft().getType().equals(Environment.Type.DECIMAL)) {
+                    requireAssignable(ast.getLeft().getType(), ast.getRight().getType());
+                    Environment.Type type = ast.getLeft().getType();
+                    ast.setType(type);
+                }
+                else {
+                    throw new RuntimeException("Incorrect us of '-', '*', or '/' operator.");
+                }
+            }
+        });
 
         return null;
     }
@@ -334,7 +380,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         // if receiver present, visit and set variable as variable in the scope of the receiver
         if (ast.getReceiver().isPresent()) {
             visit(ast.getReceiver().get());
-            ast.setVariable(ast.getReceiver().get().getType().getScope().lookupVariable(ast.getName()));
+            then(() -> ast.setVariable(ast.getReceiver().get().getType().getScope().lookupVariable(ast.getName())));
             return null;
         }
 
@@ -345,34 +391,32 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expr.Function ast) {
-        Environment.Function func;
-        int argSize = ast.getArguments().size();
-
         // if receiver present, visit and store in function with an extra argument
         if (ast.getReceiver().isPresent()) {
             visit(ast.getReceiver().get());
-            func = ast.getReceiver().get().getType().getScope().lookupFunction(ast.getName(), ast.getArguments().size() + 1);
-            argSize++;
+            then(() -> visitArguments(ast, ast.getReceiver().get().getType().getScope().lookupFunction(ast.getName(), ast.getArguments().size() + 1), 1));
         }
         // otherwise store as function located in current scope
         else {
-            func = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+            visitArguments(ast, scope.lookupFunction(ast.getName(), ast.getArguments().size()), 0);
         }
 
-        if (argSize != func.getParameterTypes().size())
-            throw new RuntimeException("Arguments size does not equal parameter size.");
+        return null;
+    }
 
-        argSize -= ast.getArguments().size();
+    private void visitArguments(Ast.Expr.Function ast, Environment.Function func, int offset) {
+        if (ast.getArguments().size() + offset != func.getParameterTypes().size())
+            throw new RuntimeException("Arguments size does not equal parameter size.");
 
         // visit arguments and require that parameter types are assignable to argument types
         for (int i = 0; i < ast.getArguments().size(); i++) {
-            visit(ast.getArguments().get(i));
-            requireAssignable(func.getParameterTypes().get(i + argSize), ast.getArguments().get(i).getType());
+            Ast.Expr argument = ast.getArguments().get(i);
+            Environment.Type parameter = func.getParameterTypes().get(i + offset);
+            visit(argument);
+            then(() -> requireAssignable(parameter, argument.getType()));
         }
 
-        ast.setFunction(func);
-
-        return null;
+        then(() -> ast.setFunction(func));
     }
 
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
@@ -11,6 +11,12 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    /**
+     * Calls the {@link Visitor} method for this node's class, which is a
+     * single virtual call rather than a chain of {@code instanceof} checks.
+     */
+    public abstract <T> T accept(Visitor<T> visitor);
+
     public static final class Source extends Ast {
 
         private final List<Field> fields;
@@ -29,6 +35,11 @@ public abstract class Ast {
             return methods;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -86,6 +97,11 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Field &&
@@ -115,6 +131,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Stmt> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
 
         public Method(String name, List<String> parameters, List<Stmt> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -162,6 +179,26 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots in the method's frame, set by the
+         * {@link Resolver}. The parameters are the first slots.
+         */
+        public int getFrameSize() {
+            if (frameSize < 0) {
+                throw new IllegalStateException("frame size is uninitialized");
+            }
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Method &&
@@ -201,6 +238,11 @@ public abstract class Ast {
                 return expression;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Expression &&
@@ -222,6 +264,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private final Optional<Expr> value;
             private Environment.Variable variable;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Expr> value) {
                 this(name, Optional.empty(), value);
@@ -256,6 +299,26 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the frame slot of the variable, set by the
+             * {@link Resolver}.
+             */
+            public int getSlot() {
+                if (slot < 0) {
+                    throw new IllegalStateException("slot is uninitialized");
+                }
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -295,6 +358,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
@@ -337,6 +405,11 @@ public abstract class Ast {
                 return elseStatements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
@@ -361,6 +434,7 @@ public abstract class Ast {
             private final String name;
             private final Expr value;
             private final List<Stmt> statements;
+            private int slot = -1;
 
             public For(String name, Expr value, List<Stmt> statements) {
                 this.name = name;
@@ -380,6 +454,26 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns the frame slot of the loop variable, set by the
+             * {@link Resolver}.
+             */
+            public int getSlot() {
+                if (slot < 0) {
+                    throw new IllegalStateException("slot is uninitialized");
+                }
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof For &&
@@ -417,6 +511,11 @@ public abstract class Ast {
                 return statements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
@@ -446,6 +545,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
@@ -463,8 +567,18 @@ public abstract class Ast {
 
     }
 
+    /**
+     * Expressions are compared structurally, including their annotations, but
+     * their hash codes only cover the structure (so they are stable across
+     * analysis) and are cached, see {@link Interner}.
+     */
     public static abstract class Expr extends Ast {
 
+        /**
+         * The cached structural hash code, or {@code 0} if not yet computed.
+         */
+        int hash = 0;
+
         public abstract Environment.Type getType();
 
         public static final class Literal extends Expr {
@@ -492,13 +606,28 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Literal &&
+                return this == obj || obj instanceof Literal &&
                         Objects.equals(literal, ((Literal) obj).literal) &&
                         Objects.equals(type, ((Literal) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                int hash = this.hash;
+                if (hash == 0) {
+                    hash = Objects.hashCode(literal);
+                    this.hash = hash;
+                }
+                return hash;
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Literal{" +
@@ -533,13 +662,28 @@ public abstract class Ast {
             public void setType(Environment.Type type) {
                 this.type = type;
             }
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Group &&
+                return this == obj || obj instanceof Group &&
                         expression.equals(((Group) obj).expression) &&
                         Objects.equals(type, ((Group) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                int hash = this.hash;
+                if (hash == 0) {
+                    hash = expression.hashCode();
+                    this.hash = hash;
+                }
+                return hash;
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Group{" +
@@ -587,15 +731,30 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Binary &&
+                return this == obj || obj instanceof Binary &&
                         operator.equals(((Binary) obj).operator) &&
                         left.equals(((Binary) obj).left) &&
                         right.equals(((Binary) obj).right) &&
                         Objects.equals(type, ((Binary) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                int hash = this.hash;
+                if (hash == 0) {
+                    hash = Objects.hash(operator, left, right);
+                    this.hash = hash;
+                }
+                return hash;
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Binary{" +
@@ -613,6 +772,8 @@ public abstract class Ast {
             private final Optional<Expr> receiver;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Expr> receiver, String name) {
                 this.receiver = receiver;
@@ -638,19 +799,62 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the depth of the variable's frame, set by the
+             * {@link Resolver}: {@link Resolver#LOCAL} for the method's frame
+             * or {@link Resolver#GLOBAL} for the globals.
+             */
+            public int getDepth() {
+                if (depth < 0) {
+                    throw new IllegalStateException("address is uninitialized");
+                }
+                return depth;
+            }
+
+            /**
+             * Returns the slot of the variable in the frame at
+             * {@link #getDepth()}.
+             */
+            public int getSlot() {
+                if (slot < 0) {
+                    throw new IllegalStateException("address is uninitialized");
+                }
+                return slot;
+            }
+
+            public void setAddress(int depth, int slot) {
+                this.depth = depth;
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Access &&
+                return this == obj || obj instanceof Access &&
                         receiver.equals(((Access) obj).receiver) &&
                         name.equals(((Access) obj).name) &&
                         Objects.equals(variable, ((Access) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                int hash = this.hash;
+                if (hash == 0) {
+                    hash = Objects.hash(receiver, name);
+                    this.hash = hash;
+                }
+                return hash;
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Access{" +
@@ -703,15 +907,30 @@ public abstract class Ast {
                 return getFunction().getReturnType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Function &&
+                return this == obj || obj instanceof Function &&
                         receiver.equals(((Function) obj).receiver) &&
                         name.equals(((Function) obj).name) &&
                         arguments.equals(((Function) obj).arguments) &&
                         Objects.equals(function, ((Function) obj).function);
             }
 
+            @Override
+            public int hashCode() {
+                int hash = this.hash;
+                if (hash == 0) {
+                    hash = Objects.hash(receiver, name, arguments);
+                    this.hash = hash;
+                }
+                return hash;
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Function{" +
@@ -728,40 +947,12 @@ public abstract class Ast {
 
     public interface Visitor<T> {
 
+        /**
+         * Dispatches to the visit method for the node's class, through
+         * {@link Ast#accept(Visitor)}.
+         */
         default T visit(Ast ast) {
-            if (ast instanceof Source) {
-                return visit((Source) ast);
-            } else if (ast instanceof Field) {
-                return visit((Field) ast);
-            } else if (ast instanceof Method) {
-                return visit((Method) ast);
-            } else if (ast instanceof Stmt.Expression) {
-                return visit((Stmt.Expression) ast);
-            } else if (ast instanceof Stmt.Declaration) {
-                return visit((Stmt.Declaration) ast);
-            } else if (ast instanceof Stmt.Assignment) {
-                return visit((Stmt.Assignment) ast);
-            } else if (ast instanceof Stmt.If) {
-                return visit((Stmt.If) ast);
-            } else if (ast instanceof Stmt.For) {
-                return visit((Stmt.For) ast);
-            } else if (ast instanceof Stmt.While) {
-                return visit((Stmt.While) ast);
-            } else if (ast instanceof Stmt.Return) {
-                return visit((Stmt.Return) ast);
-            } else if (ast instanceof Expr.Literal) {
-                return visit((Expr.Literal) ast);
-            } else if (ast instanceof Expr.Group) {
-                return visit((Expr.Group) ast);
-            } else if (ast instanceof Expr.Binary) {
-                return visit((Expr.Binary) ast);
-            } else if (ast instanceof Expr.Access) {
-                return visit((Expr.Access) ast);
-            } else if (ast instanceof Expr.Function) {
-                return visit((Expr.Function) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
-            }
+            return ast.accept(this);
         }
 
         T visit(Source ast);
@@ -0,0 +1,194 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed on-disk cache of parsed sources, so unchanged sources
+ * are not lexed and parsed again.
+ *
+ * Each entry is a file in the cache directory named by the SHA-256 hash of the
+ * source text, containing the {@link FlatAst#serialize() serialized} AST. A hit
+ * memory-maps the file and decodes it; a miss parses the source and writes the
+ * entry to a temporary file which is then moved into place, so a concurrent
+ * reader never sees a partial entry. Entries which can't be read (e.g. from an
+ * older {@link FlatAst#VERSION}) are treated as misses and overwritten.
+ *
+ * The total size of the entries is kept below a limit by evicting the least
+ * recently used ones. Each hit updates the entry's last modified time, which
+ * is how the order of use is recovered when the cache is reopened.
+ */
+public final class AstCache {
+
+    private static final String SUFFIX = ".ast";
+
+    private final Path directory;
+    private final long limit;
+
+    /**
+     * The size of each entry by its file name, in least recently used order.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Opens the cache in the directory (creating it if needed), with a limit
+     * on the total size of the entries in bytes.
+     */
+    public AstCache(Path directory, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid cache size limit " + limit + ".");
+        }
+        this.directory = directory;
+        this.limit = limit;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(directory)) {
+                stream.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+            }
+            files.sort(Comparator.comparing(AstCache::lastModified));
+            for (Path file : files) {
+                long bytes = Files.size(file);
+                entries.put(file.getFileName().toString(), bytes);
+                size += bytes;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the AST of the source as in {@link Parser#parseSource()}, from
+     * the cache if present and otherwise by parsing it and adding the result.
+     */
+    public Ast.Source parse(String source) throws ParseException {
+        String name = hash(source) + SUFFIX;
+        Path file = directory.resolve(name);
+        FlatAst ast = read(file);
+        if (ast == null) {
+            ast = FlatAst.parse(TokenBuffer.lex(source));
+            write(name, file, ast.serialize());
+        } else {
+            touch(name, file);
+        }
+        return ast.toSource();
+    }
+
+    /**
+     * Returns the total size of the entries in bytes.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the AST in the entry, or {@code null} if it is absent or can't
+     * be read.
+     */
+    private static FlatAst read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return FlatAst.deserialize(buffer);
+        } catch (NoSuchFileException | IllegalArgumentException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String name, Path file, byte[] bytes) {
+        try {
+            Path temporary = Files.createTempFile(directory, name, ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                try {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            Long previous = entries.put(name, (long) bytes.length);
+            size += bytes.length - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    private void touch(String name, Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // Evicted by another thread or process since it was read.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (this) {
+            entries.get(name);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the size is within the
+     * limit.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > limit && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size -= entry.getValue();
+            iterator.remove();
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
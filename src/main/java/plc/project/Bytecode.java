@@ -0,0 +1,185 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * A source compiled by the {@link BytecodeCompiler}, run by the
+ * {@link VirtualMachine}.
+ *
+ * All code is in one {@code int[]}: each instruction is an opcode followed by
+ * its operands, listed below. Operands are frame slots, code offsets, global
+ * slots, or indices into the constant pool, which holds the literal values (as
+ * {@link Environment.PlcObject}s) and the names of fields and object members.
+ * The initialization of the fields is a method of its own, run before
+ * {@code main}.
+ *
+ * Each call gets one {@code Object[]} frame: the parameters and locals are
+ * the first {@link Method#getLocals()} slots, and the operand stack grows
+ * above them up to {@link Method#getFrameSize()}.
+ */
+public final class Bytecode {
+
+    /** Pushes {@link Environment#NIL}. */
+    public static final int NIL = 0;
+    /** {@code k}: pushes the constant {@code k}. */
+    public static final int CONST = 1;
+    /** {@code s}: pushes the local in slot {@code s}. */
+    public static final int LOAD_LOCAL = 2;
+    /** {@code s}: pops into the local in slot {@code s}. */
+    public static final int STORE_LOCAL = 3;
+    /** {@code g}: pushes the value of global {@code g}. */
+    public static final int LOAD_GLOBAL = 4;
+    /** {@code g}: pops into global {@code g}. */
+    public static final int STORE_GLOBAL = 5;
+    /** {@code k}: pops a value and defines it as the field named by constant {@code k}. */
+    public static final int DEFINE_GLOBAL = 6;
+    /** {@code k}: pops an object and pushes its field named by constant {@code k}. */
+    public static final int GET_FIELD = 7;
+    /** {@code k}: pops a value and an object and sets its field named by constant {@code k}. */
+    public static final int SET_FIELD = 8;
+    /** Pops a value. */
+    public static final int POP = 9;
+    /** {@code t}: jumps to {@code t}. */
+    public static final int JUMP = 10;
+    /** {@code t}: pops a boolean and jumps to {@code t} if it is false. */
+    public static final int JUMP_FALSE = 11;
+    /** {@code t}: jumps to {@code t} if the boolean on top is false, and pops it otherwise. */
+    public static final int AND = 12;
+    /** {@code t}: jumps to {@code t} if the boolean on top is true, and pops it otherwise. */
+    public static final int OR = 13;
+    /** Requires the value on top to be a boolean. */
+    public static final int BOOLEAN = 14;
+    public static final int LESS = 15;
+    public static final int LESS_EQUAL = 16;
+    public static final int GREATER = 17;
+    public static final int GREATER_EQUAL = 18;
+    public static final int EQUAL = 19;
+    public static final int NOT_EQUAL = 20;
+    public static final int ADD = 21;
+    public static final int SUBTRACT = 22;
+    public static final int MULTIPLY = 23;
+    public static final int DIVIDE = 24;
+    /** {@code c n}: pops {@code n} arguments and calls function {@code c} of {@link #getCalls()}. */
+    public static final int CALL = 25;
+    /** {@code k n}: pops an object and {@code n} arguments and calls its method named by constant {@code k}. */
+    public static final int CALL_METHOD = 26;
+    /** Pops an iterable and pushes its iterator. */
+    public static final int ITERATOR = 27;
+    /** {@code s t}: stores the next value of the iterator on top in slot {@code s}, or pops it and jumps to {@code t}. */
+    public static final int NEXT = 28;
+    /** Pops a value and returns it. */
+    public static final int RETURN = 29;
+
+    private final int[] code;
+    private final Object[] constants;
+    private final List<Call> calls;
+    private final Method init;
+    private final List<Method> methods;
+    private final List<String> globals;
+
+    Bytecode(int[] code, Object[] constants, List<Call> calls, Method init, List<Method> methods, List<String> globals) {
+        this.code = code;
+        this.constants = constants;
+        this.calls = calls;
+        this.init = init;
+        this.methods = methods;
+        this.globals = globals;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    /**
+     * Returns the unqualified functions called, which are bound the first
+     * time they're called.
+     */
+    public List<Call> getCalls() {
+        return calls;
+    }
+
+    /**
+     * Returns the method which initializes the fields.
+     */
+    public Method getInit() {
+        return init;
+    }
+
+    public List<Method> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns the names of the globals, indexed by their slot, see
+     * {@link Resolver#getGlobals()}.
+     */
+    public List<String> getGlobals() {
+        return globals;
+    }
+
+    public static final class Method {
+
+        private final String name;
+        private final int arity;
+        private final int entry;
+        private final int locals;
+        private final int frameSize;
+
+        Method(String name, int arity, int entry, int locals, int frameSize) {
+            this.name = name;
+            this.arity = arity;
+            this.entry = entry;
+            this.locals = locals;
+            this.frameSize = frameSize;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+        /**
+         * Returns the offset of the method's first instruction.
+         */
+        public int getEntry() {
+            return entry;
+        }
+
+        public int getLocals() {
+            return locals;
+        }
+
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+    }
+
+    public static final class Call {
+
+        private final String name;
+        private final int arity;
+
+        Call(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+    }
+
+}
@@ -0,0 +1,313 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a {@link Ast.Source} to {@link Bytecode}, after resolving its
+ * variables with the {@link Resolver}.
+ *
+ * The code evaluates everything in the same order as the {@link Interpreter},
+ * except that each operand is evaluated once and {@code AND} and {@code OR}
+ * short-circuit. Like the {@link Resolver}, this only needs the syntax, so
+ * the source doesn't have to be analyzed first.
+ */
+public final class BytecodeCompiler extends Traversal {
+
+    private static final Map<String, Integer> OPERATORS = new HashMap<>();
+
+    static {
+        OPERATORS.put("<", Bytecode.LESS);
+        OPERATORS.put("<=", Bytecode.LESS_EQUAL);
+        OPERATORS.put(">", Bytecode.GREATER);
+        OPERATORS.put(">=", Bytecode.GREATER_EQUAL);
+        OPERATORS.put("==", Bytecode.EQUAL);
+        OPERATORS.put("!=", Bytecode.NOT_EQUAL);
+        OPERATORS.put("+", Bytecode.ADD);
+        OPERATORS.put("-", Bytecode.SUBTRACT);
+        OPERATORS.put("*", Bytecode.MULTIPLY);
+        OPERATORS.put("/", Bytecode.DIVIDE);
+    }
+
+    private int[] code = new int[256];
+    private int size = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<String, Integer> names = new HashMap<>();
+    private final List<Bytecode.Call> calls = new ArrayList<>();
+    private final Map<String, Integer> callIndices = new HashMap<>();
+    private Bytecode.Method init = null;
+    private final List<Bytecode.Method> methods = new ArrayList<>();
+
+    /**
+     * The operand stack depth at the end of the code so far, and the maximum
+     * depth within the current method.
+     */
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    public Bytecode compile(Ast.Source ast) {
+        Resolver resolver = new Resolver();
+        resolver.visit(ast);
+        visit(ast);
+        return new Bytecode(Arrays.copyOf(code, size), constants.toArray(), calls, init, methods, resolver.getGlobals());
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        visit(ast.getFields());
+        then(() -> {
+            emit(1, Bytecode.NIL);
+            emit(-1, Bytecode.RETURN);
+            init = new Bytecode.Method("", 0, 0, 0, maxDepth);
+        });
+        visit(ast.getMethods());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        value(ast.getValue().orElse(null));
+        then(() -> emit(-1, Bytecode.DEFINE_GLOBAL, name(ast.getName())));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        int[] entry = new int[1];
+        then(() -> {
+            entry[0] = size;
+            depth = 0;
+            maxDepth = 0;
+        });
+        visit(ast.getStatements());
+        then(() -> {
+            emit(1, Bytecode.NIL);
+            emit(-1, Bytecode.RETURN);
+            methods.add(new Bytecode.Method(ast.getName(), ast.getParameters().size(), entry[0],
+                    ast.getFrameSize(), ast.getFrameSize() + maxDepth));
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        then(() -> emit(-1, Bytecode.POP));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        value(ast.getValue().orElse(null));
+        then(() -> emit(-1, Bytecode.STORE_LOCAL, ast.getSlot()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        // As in the Interpreter, anything but an access can't be assigned
+        // and is ignored.
+        if (ast.getReceiver() instanceof Ast.Expr.Access) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (receiver.getReceiver().isPresent()) {
+                visit(receiver.getReceiver().get());
+                visit(ast.getValue());
+                then(() -> emit(-2, Bytecode.SET_FIELD, name(receiver.getName())));
+            } else {
+                visit(ast.getValue());
+                then(() -> emit(-1, receiver.getDepth() == Resolver.LOCAL ? Bytecode.STORE_LOCAL : Bytecode.STORE_GLOBAL,
+                        receiver.getSlot()));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        int[] jumps = new int[2];
+        visit(ast.getCondition());
+        then(() -> jumps[0] = emit(-1, Bytecode.JUMP_FALSE, -1));
+        visit(ast.getThenStatements());
+        then(() -> {
+            jumps[1] = emit(0, Bytecode.JUMP, -1);
+            patch(jumps[0]);
+        });
+        visit(ast.getElseStatements());
+        then(() -> patch(jumps[1]));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        int[] loop = new int[2];
+        visit(ast.getValue());
+        then(() -> {
+            emit(0, Bytecode.ITERATOR);
+            loop[0] = size;
+            loop[1] = emit(0, Bytecode.NEXT, ast.getSlot(), -1);
+        });
+        visit(ast.getStatements());
+        then(() -> {
+            emit(0, Bytecode.JUMP, loop[0]);
+            code[loop[1] + 2] = size;
+            // NEXT pops the iterator when it jumps out of the loop.
+            depth--;
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        int[] loop = new int[2];
+        then(() -> loop[0] = size);
+        visit(ast.getCondition());
+        then(() -> loop[1] = emit(-1, Bytecode.JUMP_FALSE, -1));
+        visit(ast.getStatements());
+        then(() -> {
+            emit(0, Bytecode.JUMP, loop[0]);
+            patch(loop[1]);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        then(() -> emit(-1, Bytecode.RETURN));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        // Literals are never modified, so each is created once.
+        Object value = ast.getLiteral() == null ? Environment.NIL.getValue() : ast.getLiteral();
+        emit(1, Bytecode.CONST, constant(Environment.create(value)));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        String operator = ast.getOperator();
+        visit(ast.getLeft());
+        if (operator.equals("AND") || operator.equals("OR")) {
+            int[] jump = new int[1];
+            then(() -> jump[0] = emit(-1, operator.equals("AND") ? Bytecode.AND : Bytecode.OR, -1));
+            visit(ast.getRight());
+            then(() -> {
+                emit(0, Bytecode.BOOLEAN);
+                patch(jump[0]);
+            });
+        } else {
+            int opcode = opcode(operator);
+            visit(ast.getRight());
+            then(() -> emit(-1, opcode));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            then(() -> emit(0, Bytecode.GET_FIELD, name(ast.getName())));
+        } else {
+            emit(1, ast.getDepth() == Resolver.LOCAL ? Bytecode.LOAD_LOCAL : Bytecode.LOAD_GLOBAL, ast.getSlot());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        int arity = ast.getArguments().size();
+        visit(ast.getArguments());
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            then(() -> emit(-arity, Bytecode.CALL_METHOD, name(ast.getName()), arity));
+        } else {
+            then(() -> emit(1 - arity, Bytecode.CALL, call(ast.getName(), arity), arity));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the opcode of a binary operator other than {@code AND} and
+     * {@code OR}.
+     */
+    static int opcode(String operator) {
+        Integer opcode = OPERATORS.get(operator);
+        if (opcode == null) {
+            throw new RuntimeException("Unknown operator " + operator + ".");
+        }
+        return opcode;
+    }
+
+    /**
+     * Schedules code pushing the value, or {@link Environment#NIL} if it is
+     * {@code null}.
+     */
+    private void value(Ast.Expr value) {
+        if (value != null) {
+            visit(value);
+        } else {
+            then(() -> emit(1, Bytecode.NIL));
+        }
+    }
+
+    /**
+     * Appends an instruction which changes the stack depth by
+     * {@code effect}, returning its offset.
+     */
+    private int emit(int effect, int... instruction) {
+        if (size + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+        }
+        int offset = size;
+        System.arraycopy(instruction, 0, code, size, instruction.length);
+        size += instruction.length;
+        depth += effect;
+        maxDepth = Math.max(maxDepth, depth);
+        return offset;
+    }
+
+    /**
+     * Sets the target of the jump at {@code offset} to the end of the code.
+     */
+    private void patch(int offset) {
+        code[offset + 1] = size;
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private int name(String name) {
+        Integer index = names.get(name);
+        if (index == null) {
+            index = constant(name);
+            names.put(name, index);
+        }
+        return index;
+    }
+
+    private int call(String name, int arity) {
+        String key = name + "/" + arity;
+        Integer index = callIndices.get(key);
+        if (index == null) {
+            index = calls.size();
+            calls.add(new Bytecode.Call(name, arity));
+            callIndices.put(key, index);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,643 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+
+/**
+ * Runs a {@link Ast.Source} by first compiling each method once into a tree
+ * of pre-linked closures, so that running it needs no visitor dispatch and no
+ * name lookups.
+ *
+ * Each closure has its operator, variable slot (from the {@link Resolver}) or
+ * member name already resolved, and each call binds its
+ * {@link Environment.Function} the first time it runs. Calls between the
+ * program's own methods go straight to the callee's closures. The
+ * {@link Analyzer}'s bindings aren't used: its functions are only signatures
+ * and its variables hold no values, so they can't be run.
+ *
+ * Values behave as in the {@link VirtualMachine}, which is the
+ * {@link Interpreter} with each operand evaluated once and short-circuiting
+ * {@code AND} and {@code OR}.
+ */
+public final class ClosureInterpreter {
+
+    private final Scope scope;
+    private List<String> names = new ArrayList<>();
+    private Environment.Variable[] globals = new Environment.Variable[0];
+
+    /**
+     * The compiled method of each function defined for the program, to
+     * recognize them when calls are bound.
+     */
+    private final Map<Environment.Function, Method> methods = new IdentityHashMap<>();
+
+    public ClosureInterpreter(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles and runs the source, returning the result of {@code main}.
+     */
+    public Environment.PlcObject run(Ast.Source ast) {
+        Resolver resolver = new Resolver();
+        resolver.visit(ast);
+        names = resolver.getGlobals();
+        globals = new Environment.Variable[names.size()];
+        for (Ast.Field field : ast.getFields()) {
+            Expr value = field.getValue().isPresent() ? expression(field.getValue().get()) : frame -> Environment.NIL;
+            scope.defineVariable(field.getName(), value.evaluate(new Environment.PlcObject[0]));
+            // The field may shadow a variable of the parent scope which was
+            // already bound by an earlier field's value.
+            Arrays.fill(globals, null);
+        }
+        for (Ast.Method declaration : ast.getMethods()) {
+            Method method = new Method(declaration.getParameters().size(), declaration.getFrameSize(), block(declaration.getStatements()));
+            scope.defineFunction(declaration.getName(), method.arity, args -> {
+                Environment.PlcObject[] frame = new Environment.PlcObject[method.frameSize];
+                for (int i = 0; i < method.arity; i++) {
+                    frame[i] = Environment.create(args.get(i).getValue());
+                }
+                return method.invoke(frame);
+            });
+            methods.put(scope.lookupFunction(declaration.getName(), method.arity), method);
+        }
+        Environment.Function main = scope.lookupFunction("main", 0);
+        return Environment.create(main.invoke(null).getValue());
+    }
+
+    /**
+     * An executable statement, which returns the value of a {@code RETURN}
+     * it executed, or {@code null} to continue with the next statement.
+     */
+    private interface Stmt {
+
+        Environment.PlcObject execute(Environment.PlcObject[] frame);
+
+    }
+
+    private interface Expr {
+
+        Environment.PlcObject evaluate(Environment.PlcObject[] frame);
+
+        /**
+         * Evaluates an integer in the range of a {@code long} without
+         * creating it, or throws {@link NotLong} with any other value.
+         */
+        default long evaluateLong(Environment.PlcObject[] frame) {
+            return longValue(evaluate(frame));
+        }
+
+    }
+
+    /**
+     * Thrown by {@link Expr#evaluateLong} for a value which isn't an integer
+     * in the range of a {@code long}. It has no stack trace, since it's only
+     * used to hand over the value.
+     */
+    private static final class NotLong extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Environment.PlcObject value;
+
+        private NotLong(Environment.PlcObject value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+
+    }
+
+    private static long longValue(Environment.PlcObject value) {
+        if (value.getValue() instanceof BigInteger && ((BigInteger) value.getValue()).bitLength() < Long.SIZE) {
+            return ((BigInteger) value.getValue()).longValue();
+        }
+        throw new NotLong(value);
+    }
+
+    private static final class Method {
+
+        private final int arity;
+        private final int frameSize;
+        private final Stmt body;
+
+        private Method(int arity, int frameSize, Stmt body) {
+            this.arity = arity;
+            this.frameSize = frameSize;
+            this.body = body;
+        }
+
+        private Environment.PlcObject invoke(Environment.PlcObject[] frame) {
+            Environment.PlcObject result = body.execute(frame);
+            return result != null ? result : Environment.NIL;
+        }
+
+    }
+
+    private Stmt block(List<Ast.Stmt> statements) {
+        Stmt[] block = new Stmt[statements.size()];
+        for (int i = 0; i < block.length; i++) {
+            block[i] = statement(statements.get(i));
+        }
+        if (block.length == 1) {
+            return block[0];
+        }
+        return frame -> {
+            for (Stmt stmt : block) {
+                Environment.PlcObject result = stmt.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    private Stmt statement(Ast.Stmt ast) {
+        return (Stmt) ast.accept(compiler);
+    }
+
+    private Expr expression(Ast.Expr ast) {
+        return (Expr) ast.accept(compiler);
+    }
+
+    /**
+     * Returns the variable of a global, looking it up in the scope the first
+     * time.
+     */
+    private Environment.Variable global(int slot) {
+        Environment.Variable variable = globals[slot];
+        if (variable == null) {
+            variable = scope.lookupVariable(names.get(slot));
+            globals[slot] = variable;
+        }
+        return variable;
+    }
+
+    private final Ast.Visitor<Object> compiler = new Ast.Visitor<Object>() {
+
+        @Override
+        public Object visit(Ast.Source ast) {
+            throw new IllegalStateException("Sources are compiled by run, not as statements or expressions.");
+        }
+
+        @Override
+        public Object visit(Ast.Field ast) {
+            throw new IllegalStateException("Fields are compiled by run, not as statements or expressions.");
+        }
+
+        @Override
+        public Object visit(Ast.Method ast) {
+            throw new IllegalStateException("Methods are compiled by run, not as statements or expressions.");
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.Expression ast) {
+            Expr expression = expression(ast.getExpression());
+            return frame -> {
+                expression.evaluate(frame);
+                return null;
+            };
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.Declaration ast) {
+            int slot = ast.getSlot();
+            if (!ast.getValue().isPresent()) {
+                return frame -> {
+                    frame[slot] = Environment.NIL;
+                    return null;
+                };
+            }
+            Expr value = expression(ast.getValue().get());
+            return frame -> {
+                frame[slot] = value.evaluate(frame);
+                return null;
+            };
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.Assignment ast) {
+            // As in the Interpreter, anything but an access can't be
+            // assigned and is ignored.
+            if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+                return frame -> null;
+            }
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            Expr value = expression(ast.getValue());
+            if (receiver.getReceiver().isPresent()) {
+                Expr object = expression(receiver.getReceiver().get());
+                String name = receiver.getName();
+                return frame -> {
+                    Environment.PlcObject obj = object.evaluate(frame);
+                    obj.setField(name, value.evaluate(frame));
+                    return null;
+                };
+            }
+            int slot = receiver.getSlot();
+            if (receiver.getDepth() == Resolver.LOCAL) {
+                return frame -> {
+                    frame[slot] = value.evaluate(frame);
+                    return null;
+                };
+            }
+            return frame -> {
+                Environment.PlcObject result = value.evaluate(frame);
+                global(slot).setValue(result);
+                return null;
+            };
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.If ast) {
+            Expr condition = expression(ast.getCondition());
+            Stmt then = block(ast.getThenStatements());
+            Stmt otherwise = block(ast.getElseStatements());
+            return frame -> Interpreter.requireType(Boolean.class, condition.evaluate(frame))
+                    ? then.execute(frame)
+                    : otherwise.execute(frame);
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.For ast) {
+            Expr value = expression(ast.getValue());
+            int slot = ast.getSlot();
+            Stmt body = block(ast.getStatements());
+            return frame -> {
+                Iterable<?> list = Interpreter.requireType(Iterable.class, value.evaluate(frame));
+                for (Object obj : list) {
+                    frame[slot] = (Environment.PlcObject) obj;
+                    Environment.PlcObject result = body.execute(frame);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            };
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.While ast) {
+            Expr condition = expression(ast.getCondition());
+            Stmt body = block(ast.getStatements());
+            return frame -> {
+                while (Interpreter.requireType(Boolean.class, condition.evaluate(frame))) {
+                    Environment.PlcObject result = body.execute(frame);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            };
+        }
+
+        @Override
+        public Stmt visit(Ast.Stmt.Return ast) {
+            Expr value = expression(ast.getValue());
+            return value::evaluate;
+        }
+
+        @Override
+        public Expr visit(Ast.Expr.Literal ast) {
+            // Literals are never modified, so each is created once.
+            Environment.PlcObject literal = Environment.create(ast.getLiteral() == null ? Environment.NIL.getValue() : ast.getLiteral());
+            return frame -> literal;
+        }
+
+        @Override
+        public Expr visit(Ast.Expr.Group ast) {
+            return expression(ast.getExpression());
+        }
+
+        @Override
+        public Expr visit(Ast.Expr.Binary ast) {
+            Expr left = expression(ast.getLeft());
+            Expr right = expression(ast.getRight());
+            switch (ast.getOperator()) {
+                case "AND":
+                    return frame -> Environment.create(Interpreter.requireType(Boolean.class, left.evaluate(frame))
+                            && Interpreter.requireType(Boolean.class, right.evaluate(frame)));
+                case "OR":
+                    return frame -> Environment.create(Interpreter.requireType(Boolean.class, left.evaluate(frame))
+                            || Interpreter.requireType(Boolean.class, right.evaluate(frame)));
+                default:
+                    return new Binary(BytecodeCompiler.opcode(ast.getOperator()), left, right);
+            }
+        }
+
+        @Override
+        public Expr visit(Ast.Expr.Access ast) {
+            String name = ast.getName();
+            if (ast.getReceiver().isPresent()) {
+                Expr receiver = expression(ast.getReceiver().get());
+                return frame -> receiver.evaluate(frame).getField(name).getValue();
+            }
+            int slot = ast.getSlot();
+            if (ast.getDepth() == Resolver.LOCAL) {
+                return frame -> frame[slot];
+            }
+            return frame -> global(slot).getValue();
+        }
+
+        @Override
+        public Expr visit(Ast.Expr.Function ast) {
+            Expr[] arguments = new Expr[ast.getArguments().size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = expression(ast.getArguments().get(i));
+            }
+            if (ast.getReceiver().isPresent()) {
+                Expr receiver = expression(ast.getReceiver().get());
+                String name = ast.getName();
+                return frame -> {
+                    List<Environment.PlcObject> args = arguments(arguments, frame);
+                    return receiver.evaluate(frame).callMethod(name, args);
+                };
+            }
+            return new Call(ast.getName(), arguments);
+        }
+
+    };
+
+    private static List<Environment.PlcObject> arguments(Expr[] arguments, Environment.PlcObject[] frame) {
+        List<Environment.PlcObject> args = new ArrayList<>(arguments.length);
+        for (Expr argument : arguments) {
+            args.add(argument.evaluate(frame));
+        }
+        return args;
+    }
+
+    /**
+     * A binary operator which specializes itself to the types of its operands
+     * the first time it runs, e.g. to integer addition. While the operands
+     * keep those types, a specialization only checks that they do instead of
+     * going through {@link VirtualMachine#binary}. Once they don't, the node
+     * falls back to the generic operator for good.
+     *
+     * Before that, the node tries to evaluate its operands as {@code long}s,
+     * which nested integer arithmetic computes without creating the
+     * intermediate values. An overflow is computed again on the
+     * {@link BigInteger}s, and an operand which isn't a {@code long} switches
+     * the node to the specializations.
+     */
+    private static final class Binary implements Expr {
+
+        private final int opcode;
+        private final Expr left;
+        private final Expr right;
+        private boolean longs = true;
+        private Specialization specialization = null;
+
+        private Binary(int opcode, Expr left, Expr right) {
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Environment.PlcObject evaluate(Environment.PlcObject[] frame) {
+            if (!longs) {
+                return evaluate(left.evaluate(frame), right.evaluate(frame));
+            }
+            long l;
+            try {
+                l = left.evaluateLong(frame);
+            } catch (NotLong e) {
+                longs = false;
+                return evaluate(e.value, right.evaluate(frame));
+            }
+            long r;
+            try {
+                r = right.evaluateLong(frame);
+            } catch (NotLong e) {
+                longs = false;
+                return evaluate(Environment.integer(l), e.value);
+            }
+            switch (opcode) {
+                case Bytecode.LESS:
+                    return Environment.create(l < r);
+                case Bytecode.LESS_EQUAL:
+                    return Environment.create(l <= r);
+                case Bytecode.GREATER:
+                    return Environment.create(l > r);
+                case Bytecode.GREATER_EQUAL:
+                    return Environment.create(l >= r);
+                case Bytecode.EQUAL:
+                    return Environment.create(l == r);
+                case Bytecode.NOT_EQUAL:
+                    return Environment.create(l != r);
+                default:
+                    try {
+                        return Environment.integer(arithmetic(opcode, l, r));
+                    } catch (ArithmeticException e) {
+                        return VirtualMachine.binary(opcode, Environment.integer(l), Environment.integer(r));
+                    }
+            }
+        }
+
+        @Override
+        public long evaluateLong(Environment.PlcObject[] frame) {
+            // The comparisons result in booleans.
+            if (!longs || opcode < Bytecode.ADD) {
+                return longValue(evaluate(frame));
+            }
+            long l;
+            try {
+                l = left.evaluateLong(frame);
+            } catch (NotLong e) {
+                longs = false;
+                return longValue(evaluate(e.value, right.evaluate(frame)));
+            }
+            long r;
+            try {
+                r = right.evaluateLong(frame);
+            } catch (NotLong e) {
+                longs = false;
+                return longValue(evaluate(Environment.integer(l), e.value));
+            }
+            try {
+                return arithmetic(opcode, l, r);
+            } catch (ArithmeticException e) {
+                throw new NotLong(VirtualMachine.binary(opcode, Environment.integer(l), Environment.integer(r)));
+            }
+        }
+
+        private Environment.PlcObject evaluate(Environment.PlcObject l, Environment.PlcObject r) {
+            Specialization specialization = this.specialization;
+            if (specialization == null) {
+                specialization = specialize(opcode, l.getValue(), r.getValue());
+                this.specialization = specialization;
+            }
+            Environment.PlcObject result = specialization.apply(l, r);
+            if (result == null) {
+                this.specialization = generic(opcode);
+                result = VirtualMachine.binary(opcode, l, r);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the result of an arithmetic opcode, throwing an
+     * {@link ArithmeticException} if it overflows or divides by zero.
+     */
+    private static long arithmetic(int opcode, long left, long right) {
+        switch (opcode) {
+            case Bytecode.ADD:
+                return Math.addExact(left, right);
+            case Bytecode.SUBTRACT:
+                return Math.subtractExact(left, right);
+            case Bytecode.MULTIPLY:
+                return Math.multiplyExact(left, right);
+            default:
+                // Dividing the minimum by -1 is the only overflow.
+                return right == -1 ? Math.negateExact(left) : left / right;
+        }
+    }
+
+    /**
+     * A binary operator for specific operand types, which returns
+     * {@code null} if the operands aren't of those types.
+     */
+    private interface Specialization {
+
+        Environment.PlcObject apply(Environment.PlcObject left, Environment.PlcObject right);
+
+    }
+
+    private static Specialization specialize(int opcode, Object left, Object right) {
+        if (left instanceof BigInteger && right instanceof BigInteger) {
+            switch (opcode) {
+                case Bytecode.ADD:
+                    return integers(BigInteger::add);
+                case Bytecode.SUBTRACT:
+                    return integers(BigInteger::subtract);
+                case Bytecode.MULTIPLY:
+                    return integers(BigInteger::multiply);
+                case Bytecode.DIVIDE:
+                    return integers(BigInteger::divide);
+                default:
+                    return comparison(opcode, BigInteger.class);
+            }
+        } else if (left instanceof BigDecimal && right instanceof BigDecimal) {
+            switch (opcode) {
+                case Bytecode.ADD:
+                    return decimals(BigDecimal::add);
+                case Bytecode.SUBTRACT:
+                    return decimals(BigDecimal::subtract);
+                case Bytecode.MULTIPLY:
+                    return decimals(BigDecimal::multiply);
+                case Bytecode.DIVIDE:
+                    return decimals((l, r) -> l.divide(r, VirtualMachine.DIVISION));
+                default:
+                    return comparison(opcode, BigDecimal.class);
+            }
+        } else if (left instanceof String && right instanceof String) {
+            if (opcode == Bytecode.ADD) {
+                return (l, r) -> l.getValue() instanceof String && r.getValue() instanceof String
+                        ? Environment.create((String) l.getValue() + r.getValue())
+                        : null;
+            }
+            return comparison(opcode, String.class);
+        }
+        return generic(opcode);
+    }
+
+    private static Specialization generic(int opcode) {
+        return (l, r) -> VirtualMachine.binary(opcode, l, r);
+    }
+
+    private static Specialization integers(BinaryOperator<BigInteger> operator) {
+        return (l, r) -> l.getValue() instanceof BigInteger && r.getValue() instanceof BigInteger
+                ? Environment.create(operator.apply((BigInteger) l.getValue(), (BigInteger) r.getValue()))
+                : null;
+    }
+
+    private static Specialization decimals(BinaryOperator<BigDecimal> operator) {
+        return (l, r) -> l.getValue() instanceof BigDecimal && r.getValue() instanceof BigDecimal
+                ? Environment.create(operator.apply((BigDecimal) l.getValue(), (BigDecimal) r.getValue()))
+                : null;
+    }
+
+    /**
+     * Returns the specialization of a comparison of two values of the type,
+     * or the generic operator for an operator which isn't a comparison.
+     */
+    private static <T extends Comparable<T>> Specialization comparison(int opcode, Class<T> type) {
+        IntPredicate test;
+        switch (opcode) {
+            case Bytecode.LESS:
+                test = comparison -> comparison < 0;
+                break;
+            case Bytecode.LESS_EQUAL:
+                test = comparison -> comparison <= 0;
+                break;
+            case Bytecode.GREATER:
+                test = comparison -> comparison > 0;
+                break;
+            case Bytecode.GREATER_EQUAL:
+                test = comparison -> comparison >= 0;
+                break;
+            default:
+                return generic(opcode);
+        }
+        return (l, r) -> type.isInstance(l.getValue()) && type.isInstance(r.getValue())
+                ? Environment.create(test.test(type.cast(l.getValue()).compareTo(type.cast(r.getValue()))))
+                : null;
+    }
+
+    /**
+     * An unqualified call, which binds its function the first time it runs.
+     */
+    private final class Call implements Expr {
+
+        private final String name;
+        private final Expr[] arguments;
+        private Environment.Function function = null;
+        private Method method = null;
+
+        private Call(String name, Expr[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Environment.PlcObject evaluate(Environment.PlcObject[] frame) {
+            if (function == null) {
+                // As in the other backends, the arguments are evaluated
+                // before the function is looked up.
+                List<Environment.PlcObject> args = arguments(arguments, frame);
+                function = scope.lookupFunction(name, arguments.length);
+                method = methods.get(function);
+                return Environment.create(function.invoke(args).getValue());
+            }
+            Environment.PlcObject result;
+            if (method != null) {
+                Environment.PlcObject[] callee = new Environment.PlcObject[method.frameSize];
+                for (int i = 0; i < arguments.length; i++) {
+                    callee[i] = Environment.create(arguments[i].evaluate(frame).getValue());
+                }
+                result = method.invoke(callee);
+            } else {
+                result = function.invoke(arguments(arguments, frame));
+            }
+            return Environment.create(result.getValue());
+        }
+
+    }
+
+}
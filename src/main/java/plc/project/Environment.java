@@ -1,10 +1,9 @@
 package plc.project;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public final class Environment {
 
@@ -17,24 +16,77 @@ public final class Environment {
 
     });
 
-    private static final Map<String, Type> TYPES = new HashMap<>();
+    /**
+     * The registry used by code which isn't given one, see
+     * {@link TypeRegistry}.
+     */
+    private static final TypeRegistry TYPES = new TypeRegistry();
+
+    public static TypeRegistry getTypes() {
+        return TYPES;
+    }
 
     public static Type getType(String name) {
-        if (!TYPES.containsKey(name)) {
-            throw new RuntimeException("Unknown type " + name + ".");
-        }
-        return TYPES.get(name);
+        return TYPES.getType(name);
     }
 
     public static void registerType(Type type) {
-        if (TYPES.containsKey(type.getName())) {
-            throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
+        TYPES.registerType(type);
+    }
+
+    /**
+     * The scope and type of the values created by {@link #create}, which have
+     * no members. Both are shared, since neither can be changed.
+     */
+    private static final Scope EMPTY = Scope.empty();
+    private static final Type UNKNOWN = new Type("Unknown", "Unknown", EMPTY);
+
+    public static final PlcObject TRUE = new PlcObject(UNKNOWN, EMPTY, true);
+    public static final PlcObject FALSE = new PlcObject(UNKNOWN, EMPTY, false);
+
+    /**
+     * The integers from {@code -128} to {@code 1023}, which loop counters
+     * and small arithmetic mostly stay within.
+     */
+    private static final int SMALL_MIN = -128;
+    private static final PlcObject[] SMALL = new PlcObject[1152];
+
+    static {
+        for (int i = 0; i < SMALL.length; i++) {
+            SMALL[i] = new PlcObject(UNKNOWN, EMPTY, BigInteger.valueOf(SMALL_MIN + i));
         }
-        TYPES.put(type.getName(), type);
     }
 
+    /**
+     * Returns an object for the value without any members. Booleans and
+     * small integers are shared, which is safe since objects are never
+     * modified in place, only replaced.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return create(((Boolean) value).booleanValue());
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Integer.SIZE) {
+            int integer = ((BigInteger) value).intValue();
+            if (integer >= SMALL_MIN && integer < SMALL_MIN + SMALL.length) {
+                return SMALL[integer - SMALL_MIN];
+            }
+        }
+        return new PlcObject(UNKNOWN, EMPTY, value);
+    }
+
+    public static PlcObject create(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Returns an object for the integer, without creating a
+     * {@link BigInteger} if it is small.
+     */
+    static PlcObject integer(long value) {
+        if (value >= SMALL_MIN && value < SMALL_MIN + SMALL.length) {
+            return SMALL[(int) value - SMALL_MIN];
+        }
+        return new PlcObject(UNKNOWN, EMPTY, BigInteger.valueOf(value));
     }
 
     public static final class Type {
@@ -265,15 +317,6 @@ public final class Environment {
     }
 
     static {
-        registerType(Type.ANY);
-        registerType(Type.NIL);
-        registerType(Type.INTEGER_ITERABLE);
-        registerType(Type.COMPARABLE);
-        registerType(Type.BOOLEAN);
-        registerType(Type.INTEGER);
-        registerType(Type.DECIMAL);
-        registerType(Type.CHARACTER);
-        registerType(Type.STRING);
         Type.ANY.scope.defineFunction("stringify", "toString", Arrays.asList(), Type.STRING, args -> Environment.NIL);
         Type.COMPARABLE.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.COMPARABLE), Type.COMPARABLE, args -> Environment.NIL);
         Type.INTEGER.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.INTEGER), Type.INTEGER, args -> Environment.NIL);
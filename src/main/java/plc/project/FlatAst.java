@@ -0,0 +1,1002 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A compact encoding of an {@link Ast.Source} in a few primitive arrays,
+ * instead of one object per node plus the {@link Optional}s, {@link List}s
+ * and {@link String}s hanging off it.
+ *
+ * Each node is a record in one {@code int[]}: its kind followed by its
+ * operands, where child nodes are the offsets of their records, lists are a
+ * length followed by the elements, and absent optionals are {@code -1}. Names,
+ * type names and operators are indices into a deduplicated string pool and
+ * literal values are indices into a deduplicated literal pool, so repeated
+ * identifiers and constants are stored once. For example, {@code x + 1} is
+ * three records: {@code [ACCESS, -1, "x"]}, {@code [LITERAL, 1]} and
+ * {@code [BINARY, "+", left, right]}. The source span (in characters) of each
+ * top-level declaration is kept alongside.
+ *
+ * The nodes are read back through {@link #getSource()}, an {@link Ast.Source}
+ * view which decodes each {@link Ast.Field} and {@link Ast.Method} when it is
+ * accessed, so existing {@link Ast.Visitor}s can traverse it while only one
+ * declaration is expanded into objects at a time. Since every access decodes
+ * new nodes, passes which annotate the AST (like {@link Analyzer}) should
+ * keep the nodes they are given or use {@link #toSource()}.
+ *
+ * The arrays can be written to bytes with {@link #serialize()} and read back
+ * with {@link #deserialize(ByteBuffer)}, see {@link AstCache}. The format
+ * starts with {@link #MAGIC} and {@link #VERSION}, which must be incremented
+ * whenever the layout of the records or the pools changes.
+ */
+public final class FlatAst {
+
+    private static final int FIELD = 0, METHOD = 1, EXPRESSION = 2, DECLARATION = 3, ASSIGNMENT = 4, IF = 5,
+            FOR = 6, WHILE = 7, RETURN = 8, LITERAL = 9, GROUP = 10, BINARY = 11, ACCESS = 12, FUNCTION = 13;
+
+    private static final int NULL = 0, BOOLEAN = 1, INTEGER = 2, DECIMAL = 3, CHARACTER = 4, STRING = 5;
+
+    /**
+     * The first four bytes of the binary format, {@code PLCA}.
+     */
+    public static final int MAGIC = 0x504C4341;
+
+    /**
+     * The version of the binary format.
+     */
+    public static final int VERSION = 1;
+
+    private final int[] data;
+    private final String[] strings;
+    private final Object[] literals;
+    private final int[] declarations;
+    private final int[] starts;
+    private final int[] ends;
+    private final int fields;
+
+    private FlatAst(Encoder encoder) {
+        this.data = Arrays.copyOf(encoder.data, encoder.size);
+        this.strings = encoder.strings.toArray(new String[0]);
+        this.literals = encoder.literals.toArray();
+        this.declarations = Arrays.copyOf(encoder.declarations, encoder.count);
+        this.starts = Arrays.copyOf(encoder.starts, encoder.count);
+        this.ends = Arrays.copyOf(encoder.ends, encoder.count);
+        this.fields = encoder.fields;
+    }
+
+    private FlatAst(int[] data, String[] strings, Object[] literals, int[] declarations, int[] starts, int[] ends, int fields) {
+        this.data = data;
+        this.strings = strings;
+        this.literals = literals;
+        this.declarations = declarations;
+        this.starts = starts;
+        this.ends = ends;
+        this.fields = fields;
+    }
+
+    /**
+     * Parses the tokens as in {@link Parser#parseSource()}, encoding each
+     * top-level declaration as soon as it is parsed so that the object form of
+     * the whole AST never exists at once.
+     */
+    public static FlatAst parse(TokenBuffer tokens) throws ParseException {
+        Encoder encoder = new Encoder();
+        Parser parser = new Parser(tokens);
+        boolean fields = true;
+        while (true) {
+            int start = parser.getPosition();
+            Ast declaration = parser.parseDeclaration(fields);
+            if (declaration == null) {
+                break;
+            }
+            int end = parser.getPosition() - 1;
+            fields = declaration instanceof Ast.Field;
+            encoder.declaration(declaration, tokens.getStart(start), tokens.getStart(end) + tokens.getLength(end));
+        }
+        return new FlatAst(encoder);
+    }
+
+    /**
+     * Encodes an existing AST. Its spans are unknown, so are {@code -1}.
+     */
+    public static FlatAst of(Ast.Source source) {
+        Encoder encoder = new Encoder();
+        for (Ast.Field field : source.getFields()) {
+            encoder.declaration(field, -1, -1);
+        }
+        for (Ast.Method method : source.getMethods()) {
+            encoder.declaration(method, -1, -1);
+        }
+        return new FlatAst(encoder);
+    }
+
+    /**
+     * Returns a view of the AST whose field and method lists decode each
+     * element on access.
+     */
+    public Ast.Source getSource() {
+        return new Ast.Source(new AbstractList<Ast.Field>() {
+
+            @Override
+            public Ast.Field get(int index) {
+                return getField(index);
+            }
+
+            @Override
+            public int size() {
+                return fields;
+            }
+
+        }, new AbstractList<Ast.Method>() {
+
+            @Override
+            public Ast.Method get(int index) {
+                return getMethod(index);
+            }
+
+            @Override
+            public int size() {
+                return declarations.length - fields;
+            }
+
+        });
+    }
+
+    /**
+     * Decodes the whole AST into objects.
+     */
+    public Ast.Source toSource() {
+        return new Ast.Source(new ArrayList<>(getSource().getFields()), new ArrayList<>(getSource().getMethods()));
+    }
+
+    public Ast.Field getField(int index) {
+        return (Ast.Field) decode(declarations[check(index, 0, fields)]);
+    }
+
+    public Ast.Method getMethod(int index) {
+        return (Ast.Method) decode(declarations[check(index, fields, declarations.length) + fields]);
+    }
+
+    /**
+     * Returns the number of top-level declarations (fields, then methods).
+     */
+    public int size() {
+        return declarations.length;
+    }
+
+    /**
+     * Returns the source index of the start of the declaration, or {@code -1}
+     * if unknown.
+     */
+    public int getStart(int declaration) {
+        return starts[declaration];
+    }
+
+    /**
+     * Returns the source index just after the end of the declaration, or
+     * {@code -1} if unknown.
+     */
+    public int getEnd(int declaration) {
+        return ends[declaration];
+    }
+
+    /**
+     * Writes the AST in the binary format: the header, the number of fields,
+     * the declaration offsets and spans, the node records, then the string
+     * and literal pools. All values are big-endian.
+     */
+    public byte[] serialize() {
+        ByteArrayOutputStream pools = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(pools)) {
+            out.writeInt(strings.length);
+            for (String string : strings) {
+                writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+            }
+            out.writeInt(literals.length);
+            for (Object literal : literals) {
+                writeLiteral(out, literal);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (5 + 3 * declarations.length + data.length) + pools.size());
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(fields).putInt(declarations.length);
+        buffer.asIntBuffer().put(declarations).put(starts).put(ends).put(data.length).put(data);
+        buffer.position(buffer.position() + 4 * (3 * declarations.length + 1 + data.length));
+        buffer.put(pools.toByteArray());
+        return buffer.array();
+    }
+
+    /**
+     * Reads an AST written by {@link #serialize()} from the buffer's position.
+     *
+     * @throws IllegalArgumentException if the buffer does not start with
+     *     {@link #MAGIC} and {@link #VERSION}, or its contents are malformed
+     *     (including records which wouldn't decode).
+     */
+    public static FlatAst deserialize(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a serialized AST.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported AST version " + version + " (expected " + VERSION + ").");
+            }
+            int fields = buffer.getInt();
+            int count = buffer.getInt();
+            int[] declarations = getInts(buffer, count);
+            int[] starts = getInts(buffer, count);
+            int[] ends = getInts(buffer, count);
+            int[] data = getInts(buffer, buffer.getInt());
+            // Each string is at least its length, and each literal its tag.
+            String[] strings = new String[count(buffer, 4)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = new String(getBytes(buffer), StandardCharsets.UTF_8);
+            }
+            Object[] literals = new Object[count(buffer, 1)];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = getLiteral(buffer);
+            }
+            if (fields < 0 || fields > count) {
+                throw new IllegalArgumentException("Invalid field count " + fields + ".");
+            }
+            new Validator(data, strings.length, literals.length).validate(declarations, fields);
+            return new FlatAst(data, strings, literals, declarations, starts, ends, fields);
+        } catch (BufferUnderflowException | NegativeArraySizeException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated serialized AST.", e);
+        }
+    }
+
+    private static void writeLiteral(DataOutputStream out, Object literal) throws IOException {
+        if (literal == null) {
+            out.writeByte(NULL);
+        } else if (literal instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) literal);
+        } else if (literal instanceof BigInteger) {
+            out.writeByte(INTEGER);
+            writeBytes(out, ((BigInteger) literal).toByteArray());
+        } else if (literal instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeInt(((BigDecimal) literal).scale());
+            writeBytes(out, ((BigDecimal) literal).unscaledValue().toByteArray());
+        } else if (literal instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) literal);
+        } else if (literal instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(out, ((String) literal).getBytes(StandardCharsets.UTF_8));
+        } else {
+            throw new AssertionError("Unimplemented literal type: " + literal.getClass().getName() + ".");
+        }
+    }
+
+    private static Object getLiteral(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case INTEGER:
+                return new BigInteger(getBytes(buffer));
+            case DECIMAL: {
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(getBytes(buffer)), scale);
+            }
+            case CHARACTER:
+                return buffer.getChar();
+            case STRING:
+                return new String(getBytes(buffer), StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Invalid literal tag " + tag + ".");
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[count(buffer, 1)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("Invalid length " + count + ".");
+        }
+        int[] ints = new int[count];
+        IntBuffer view = buffer.asIntBuffer();
+        view.get(ints);
+        buffer.position(buffer.position() + 4 * count);
+        return ints;
+    }
+
+    /**
+     * Reads the length of something stored in at least {@code size} bytes per
+     * element, checking it against the remaining bytes before anything is
+     * allocated for it.
+     */
+    private static int count(ByteBuffer buffer, int size) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / size) {
+            throw new IllegalArgumentException("Invalid length " + count + ".");
+        }
+        return count;
+    }
+
+    private int check(int index, int from, int to) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + (to - from) + ".");
+        }
+        return index;
+    }
+
+    /**
+     * Decodes the node and its descendants with an explicit work stack, so
+     * that deeply nested nodes don't overflow the Java stack. Each node is
+     * visited twice: first to schedule its children (marked by a
+     * non-negative offset), then to build it from their results (marked by
+     * the complement of its offset). The children are scheduled in order, so
+     * they are built last to first and the first child's result ends up on
+     * top of the result stack.
+     */
+    private Ast decode(int root) {
+        int[] work = new int[16];
+        int size = 0;
+        List<Ast> results = new ArrayList<>();
+        work[size++] = root;
+        while (size > 0) {
+            int node = work[--size];
+            if (node < 0) {
+                results.add(build(~node, results));
+                continue;
+            }
+            int[] children = children(node);
+            if (size + 1 + children.length > work.length) {
+                work = Arrays.copyOf(work, Math.max(work.length * 2, size + 1 + children.length));
+            }
+            work[size++] = ~node;
+            System.arraycopy(children, 0, work, size, children.length);
+            size += children.length;
+        }
+        return results.get(0);
+    }
+
+    /**
+     * Returns the offsets of the node's children, in order.
+     */
+    private int[] children(int node) {
+        int[] data = this.data;
+        switch (data[node]) {
+            case FIELD:
+            case DECLARATION:
+                return data[node + 3] < 0 ? new int[0] : new int[] {data[node + 3]};
+            case METHOD:
+                return list(node + 4 + 2 * data[node + 3]);
+            case EXPRESSION:
+            case RETURN:
+            case GROUP:
+                return new int[] {data[node + 1]};
+            case ASSIGNMENT:
+                return new int[] {data[node + 1], data[node + 2]};
+            case IF: {
+                int[] thenStatements = list(node + 2);
+                int[] elseStatements = list(node + 3 + data[node + 2]);
+                int[] children = new int[1 + thenStatements.length + elseStatements.length];
+                children[0] = data[node + 1];
+                System.arraycopy(thenStatements, 0, children, 1, thenStatements.length);
+                System.arraycopy(elseStatements, 0, children, 1 + thenStatements.length, elseStatements.length);
+                return children;
+            }
+            case FOR:
+                return prepend(data[node + 2], list(node + 3));
+            case WHILE:
+                return prepend(data[node + 1], list(node + 2));
+            case LITERAL:
+                return new int[0];
+            case BINARY:
+                return new int[] {data[node + 2], data[node + 3]};
+            case ACCESS:
+                return data[node + 1] < 0 ? new int[0] : new int[] {data[node + 1]};
+            case FUNCTION:
+                return data[node + 1] < 0 ? list(node + 3) : prepend(data[node + 1], list(node + 3));
+            default:
+                throw new AssertionError("Invalid node kind " + data[node] + ".");
+        }
+    }
+
+    /**
+     * Returns the elements of the list whose length is at {@code index}.
+     */
+    private int[] list(int index) {
+        return Arrays.copyOfRange(data, index + 1, index + 1 + data[index]);
+    }
+
+    private static int[] prepend(int first, int[] rest) {
+        int[] values = new int[1 + rest.length];
+        values[0] = first;
+        System.arraycopy(rest, 0, values, 1, rest.length);
+        return values;
+    }
+
+    /**
+     * Builds the node, taking the results of its children off the top of
+     * {@code results}.
+     */
+    private Ast build(int node, List<Ast> results) {
+        int[] data = this.data;
+        switch (data[node]) {
+            case FIELD:
+                return new Ast.Field(strings[data[node + 1]], strings[data[node + 2]], optional(data[node + 3], results));
+            case METHOD: {
+                int count = data[node + 3];
+                List<String> parameters = new ArrayList<>(count);
+                List<String> parameterTypeNames = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    parameters.add(strings[data[node + 4 + i]]);
+                    parameterTypeNames.add(strings[data[node + 4 + count + i]]);
+                }
+                Optional<String> returnTypeName = data[node + 2] < 0 ? Optional.empty() : Optional.of(strings[data[node + 2]]);
+                return new Ast.Method(strings[data[node + 1]], parameters, parameterTypeNames, returnTypeName,
+                        statements(node + 4 + 2 * count, results));
+            }
+            case EXPRESSION:
+                return new Ast.Stmt.Expression(expr(results));
+            case DECLARATION:
+                return new Ast.Stmt.Declaration(strings[data[node + 1]],
+                        data[node + 2] < 0 ? Optional.empty() : Optional.of(strings[data[node + 2]]),
+                        optional(data[node + 3], results));
+            case ASSIGNMENT: {
+                Ast.Expr receiver = expr(results);
+                return new Ast.Stmt.Assignment(receiver, expr(results));
+            }
+            case IF: {
+                Ast.Expr condition = expr(results);
+                List<Ast.Stmt> thenStatements = statements(node + 2, results);
+                return new Ast.Stmt.If(condition, thenStatements, statements(node + 3 + data[node + 2], results));
+            }
+            case FOR: {
+                Ast.Expr value = expr(results);
+                return new Ast.Stmt.For(strings[data[node + 1]], value, statements(node + 3, results));
+            }
+            case WHILE: {
+                Ast.Expr condition = expr(results);
+                return new Ast.Stmt.While(condition, statements(node + 2, results));
+            }
+            case RETURN:
+                return new Ast.Stmt.Return(expr(results));
+            case LITERAL:
+                return new Ast.Expr.Literal(literals[data[node + 1]]);
+            case GROUP:
+                return new Ast.Expr.Group(expr(results));
+            case BINARY: {
+                Ast.Expr left = expr(results);
+                return new Ast.Expr.Binary(strings[data[node + 1]], left, expr(results));
+            }
+            case ACCESS:
+                return new Ast.Expr.Access(optional(data[node + 1], results), strings[data[node + 2]]);
+            case FUNCTION: {
+                Optional<Ast.Expr> receiver = optional(data[node + 1], results);
+                int count = data[node + 3];
+                List<Ast.Expr> arguments = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    arguments.add(expr(results));
+                }
+                return new Ast.Expr.Function(receiver, strings[data[node + 2]], arguments);
+            }
+            default:
+                throw new AssertionError("Invalid node kind " + data[node] + ".");
+        }
+    }
+
+    private static Ast pop(List<Ast> results) {
+        return results.remove(results.size() - 1);
+    }
+
+    private static Ast.Expr expr(List<Ast> results) {
+        return (Ast.Expr) pop(results);
+    }
+
+    private static Optional<Ast.Expr> optional(int node, List<Ast> results) {
+        return node < 0 ? Optional.empty() : Optional.of(expr(results));
+    }
+
+    /**
+     * Takes the statements of the list whose length is at {@code index} off
+     * the top of {@code results}.
+     */
+    private List<Ast.Stmt> statements(int index, List<Ast> results) {
+        int count = data[index];
+        List<Ast.Stmt> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add((Ast.Stmt) pop(results));
+        }
+        return statements;
+    }
+
+    /**
+     * Checks deserialized records, so that decoding them can't fail later.
+     * The records are contiguous and in post-order, so they are checked in one
+     * pass: each child must be an earlier record of the right category, which
+     * also rules out cycles, and each string and literal must be in its pool.
+     */
+    private static final class Validator {
+
+        private static final byte EXPR = 1, STMT = 2, FIELD_DECLARATION = 3, METHOD_DECLARATION = 4;
+
+        private final int[] data;
+        private final int strings;
+        private final int literals;
+        private final byte[] categories;
+
+        private Validator(int[] data, int strings, int literals) {
+            this.data = data;
+            this.strings = strings;
+            this.literals = literals;
+            this.categories = new byte[data.length];
+        }
+
+        private void validate(int[] declarations, int fields) {
+            int node = 0;
+            while (node < data.length) {
+                node = record(node);
+            }
+            for (int i = 0; i < declarations.length; i++) {
+                int declaration = declarations[i];
+                byte category = i < fields ? FIELD_DECLARATION : METHOD_DECLARATION;
+                if (declaration < 0 || declaration >= data.length || categories[declaration] != category) {
+                    throw new IllegalArgumentException("Invalid declaration " + i + ".");
+                }
+            }
+        }
+
+        /**
+         * Checks the record at {@code node}, returning the offset after it.
+         */
+        private int record(int node) {
+            byte category;
+            int end;
+            switch (data[node]) {
+                case FIELD:
+                    string(node + 1, false);
+                    string(node + 2, false);
+                    child(node + 3, node, EXPR, true);
+                    category = FIELD_DECLARATION;
+                    end = node + 4;
+                    break;
+                case METHOD: {
+                    string(node + 1, false);
+                    string(node + 2, true);
+                    int count = get(node + 3);
+                    if (count < 0 || count > data.length) {
+                        throw new IllegalArgumentException("Invalid record at " + node + ".");
+                    }
+                    for (int i = 0; i < 2 * count; i++) {
+                        string(node + 4 + i, false);
+                    }
+                    category = METHOD_DECLARATION;
+                    end = list(node + 4 + 2 * count, node, STMT);
+                    break;
+                }
+                case EXPRESSION:
+                case RETURN:
+                    child(node + 1, node, EXPR, false);
+                    category = STMT;
+                    end = node + 2;
+                    break;
+                case DECLARATION:
+                    string(node + 1, false);
+                    string(node + 2, true);
+                    child(node + 3, node, EXPR, true);
+                    category = STMT;
+                    end = node + 4;
+                    break;
+                case ASSIGNMENT:
+                    child(node + 1, node, EXPR, false);
+                    child(node + 2, node, EXPR, false);
+                    category = STMT;
+                    end = node + 3;
+                    break;
+                case IF:
+                    child(node + 1, node, EXPR, false);
+                    category = STMT;
+                    end = list(list(node + 2, node, STMT), node, STMT);
+                    break;
+                case FOR:
+                    string(node + 1, false);
+                    child(node + 2, node, EXPR, false);
+                    category = STMT;
+                    end = list(node + 3, node, STMT);
+                    break;
+                case WHILE:
+                    child(node + 1, node, EXPR, false);
+                    category = STMT;
+                    end = list(node + 2, node, STMT);
+                    break;
+                case LITERAL: {
+                    int literal = get(node + 1);
+                    if (literal < 0 || literal >= literals) {
+                        throw new IllegalArgumentException("Invalid literal " + literal + " at " + node + ".");
+                    }
+                    category = EXPR;
+                    end = node + 2;
+                    break;
+                }
+                case GROUP:
+                    child(node + 1, node, EXPR, false);
+                    category = EXPR;
+                    end = node + 2;
+                    break;
+                case BINARY:
+                    string(node + 1, false);
+                    child(node + 2, node, EXPR, false);
+                    child(node + 3, node, EXPR, false);
+                    category = EXPR;
+                    end = node + 4;
+                    break;
+                case ACCESS:
+                    child(node + 1, node, EXPR, true);
+                    string(node + 2, false);
+                    category = EXPR;
+                    end = node + 3;
+                    break;
+                case FUNCTION:
+                    child(node + 1, node, EXPR, true);
+                    string(node + 2, false);
+                    category = EXPR;
+                    end = list(node + 3, node, EXPR);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid node kind " + data[node] + " at " + node + ".");
+            }
+            categories[node] = category;
+            return end;
+        }
+
+        private int get(int index) {
+            if (index >= data.length) {
+                throw new IllegalArgumentException("Truncated record at " + index + ".");
+            }
+            return data[index];
+        }
+
+        private void string(int index, boolean optional) {
+            int string = get(index);
+            if (string >= strings || string < (optional ? -1 : 0)) {
+                throw new IllegalArgumentException("Invalid string " + string + " at " + index + ".");
+            }
+        }
+
+        private void child(int index, int node, byte category, boolean optional) {
+            int child = get(index);
+            if (child < 0 ? !optional : child >= node || categories[child] != category) {
+                throw new IllegalArgumentException("Invalid child " + child + " at " + index + ".");
+            }
+        }
+
+        /**
+         * Checks the list whose length is at {@code index}, returning the
+         * offset after it.
+         */
+        private int list(int index, int node, byte category) {
+            int count = get(index);
+            if (count < 0 || count > data.length - index - 1) {
+                throw new IllegalArgumentException("Invalid list length " + count + " at " + index + ".");
+            }
+            for (int i = 0; i < count; i++) {
+                child(index + 1 + i, node, category, false);
+            }
+            return index + 1 + count;
+        }
+
+    }
+
+    /**
+     * Appends node records in post-order, so the offsets of a node's children
+     * are known by the time its own record is written. It is a
+     * {@link Traversal}, so deeply nested nodes don't overflow the Java
+     * stack: each node's record is written by an action after its children,
+     * which leave their offsets on a stack.
+     */
+    private static final class Encoder extends Traversal {
+
+        private int[] data = new int[1024];
+        private int size = 0;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndices = new HashMap<>();
+        private final List<Object> literals = new ArrayList<>();
+        private final Map<Object, Integer> literalIndices = new HashMap<>();
+        private int[] declarations = new int[16];
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int count = 0;
+        private int fields = 0;
+
+        /**
+         * The offsets of the encoded nodes whose parents haven't been written
+         * yet.
+         */
+        private int[] results = new int[64];
+        private int depth = 0;
+
+        private void declaration(Ast ast, int start, int end) {
+            if (count == declarations.length) {
+                declarations = Arrays.copyOf(declarations, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            declarations[count] = encode(ast);
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+            if (ast instanceof Ast.Field) {
+                fields++;
+            }
+        }
+
+        /**
+         * Encodes the node, returning the offset of its record.
+         */
+        private int encode(Ast ast) {
+            visit(ast);
+            return pop();
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            throw new AssertionError("Sources are encoded by declaration.");
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            visit(ast.getValue());
+            then(() -> {
+                int value = optional(ast.getValue());
+                push(write(FIELD, string(ast.getName()), string(ast.getTypeName()), value));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            visit(ast.getStatements());
+            then(() -> {
+                int[] statements = pop(ast.getStatements().size());
+                int node = write(METHOD, string(ast.getName()),
+                        ast.getReturnTypeName().isPresent() ? string(ast.getReturnTypeName().get()) : -1,
+                        ast.getParameters().size());
+                for (String parameter : ast.getParameters()) {
+                    write(string(parameter));
+                }
+                for (String typeName : ast.getParameterTypeNames()) {
+                    write(string(typeName));
+                }
+                writeList(statements);
+                push(node);
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            visit(ast.getExpression());
+            then(() -> push(write(EXPRESSION, pop())));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            visit(ast.getValue());
+            then(() -> {
+                int value = optional(ast.getValue());
+                push(write(DECLARATION, string(ast.getName()),
+                        ast.getTypeName().isPresent() ? string(ast.getTypeName().get()) : -1, value));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            then(() -> {
+                int value = pop();
+                push(write(ASSIGNMENT, pop(), value));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            visit(ast.getCondition());
+            visit(ast.getThenStatements());
+            visit(ast.getElseStatements());
+            then(() -> {
+                int[] elseStatements = pop(ast.getElseStatements().size());
+                int[] thenStatements = pop(ast.getThenStatements().size());
+                int node = write(IF, pop());
+                writeList(thenStatements);
+                writeList(elseStatements);
+                push(node);
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            visit(ast.getValue());
+            visit(ast.getStatements());
+            then(() -> {
+                int[] statements = pop(ast.getStatements().size());
+                int node = write(FOR, string(ast.getName()), pop());
+                writeList(statements);
+                push(node);
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            visit(ast.getCondition());
+            visit(ast.getStatements());
+            then(() -> {
+                int[] statements = pop(ast.getStatements().size());
+                int node = write(WHILE, pop());
+                writeList(statements);
+                push(node);
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            visit(ast.getValue());
+            then(() -> push(write(RETURN, pop())));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            push(write(LITERAL, literal(ast.getLiteral())));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            visit(ast.getExpression());
+            then(() -> push(write(GROUP, pop())));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            then(() -> {
+                int right = pop();
+                int left = pop();
+                push(write(BINARY, string(ast.getOperator()), left, right));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            visit(ast.getReceiver());
+            then(() -> {
+                int receiver = optional(ast.getReceiver());
+                push(write(ACCESS, receiver, string(ast.getName())));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            visit(ast.getReceiver());
+            visit(ast.getArguments());
+            then(() -> {
+                int[] arguments = pop(ast.getArguments().size());
+                int receiver = optional(ast.getReceiver());
+                int node = write(FUNCTION, receiver, string(ast.getName()));
+                writeList(arguments);
+                push(node);
+            });
+            return null;
+        }
+
+        private void visit(Optional<? extends Ast> ast) {
+            if (ast.isPresent()) {
+                visit(ast.get());
+            }
+        }
+
+        /**
+         * Returns the offset of the optional node's record, which must be on
+         * top of the stack if it is present, or {@code -1}.
+         */
+        private int optional(Optional<? extends Ast> ast) {
+            return ast.isPresent() ? pop() : -1;
+        }
+
+        private void push(int node) {
+            if (depth == results.length) {
+                results = Arrays.copyOf(results, depth * 2);
+            }
+            results[depth++] = node;
+        }
+
+        private int pop() {
+            return results[--depth];
+        }
+
+        /**
+         * Pops the offsets of the last {@code count} nodes, in order.
+         */
+        private int[] pop(int count) {
+            depth -= count;
+            return Arrays.copyOfRange(results, depth, depth + count);
+        }
+
+        private int string(String string) {
+            return stringIndices.computeIfAbsent(string, s -> {
+                strings.add(s);
+                return strings.size() - 1;
+            });
+        }
+
+        private int literal(Object literal) {
+            Integer index = literalIndices.get(literal);
+            if (index == null) {
+                index = literals.size();
+                literals.add(literal);
+                literalIndices.put(literal, index);
+            }
+            return index;
+        }
+
+        /**
+         * Writes a list as its length followed by the elements.
+         */
+        private void writeList(int[] nodes) {
+            write(nodes.length);
+            for (int node : nodes) {
+                write(node);
+            }
+        }
+
+        /**
+         * Appends the values, returning the offset of the first.
+         */
+        private int write(int... values) {
+            if (size + values.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + values.length));
+            }
+            System.arraycopy(values, 0, data, size, values.length);
+            size += values.length;
+            return size - values.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link Interpreter} which keeps variables in flat frames instead of
+ * scopes, using the addresses from the {@link Resolver}. Each method call
+ * allocates one array for its parameters and locals, so blocks and loop
+ * iterations don't allocate anything and a local variable access is an array
+ * load. Globals are bound to their {@link Environment.Variable} in the scope
+ * the first time they're used, and are array loads after that.
+ *
+ * Only whole sources can be run, since everything else needs to be resolved
+ * first. Expressions are evaluated by the {@link Interpreter} as usual.
+ */
+public final class FrameInterpreter extends Interpreter {
+
+    private Environment.Variable[] globals = new Environment.Variable[0];
+    private Environment.PlcObject[] frame = null;
+
+    public FrameInterpreter(Scope parent) {
+        super(parent);
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Source ast) {
+        Resolver resolver = new Resolver();
+        resolver.visit(ast);
+        globals = new Environment.Variable[resolver.getGlobals().size()];
+        return super.visit(ast);
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Field ast) {
+        super.visit(ast);
+        // The field may shadow a variable of the parent scope which was
+        // already bound by an earlier field's value.
+        Arrays.fill(globals, null);
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Method ast) {
+        List<String> parameters = ast.getParameters();
+        List<Ast.Stmt> statements = ast.getStatements();
+        getScope().defineFunction(ast.getName(), parameters.size(), args -> {
+            Environment.PlcObject[] caller = frame;
+            frame = new Environment.PlcObject[ast.getFrameSize()];
+            try {
+                for (int i = 0; i < parameters.size(); i++) {
+                    frame[i] = Environment.create(args.get(i).getValue());
+                }
+                execute(statements);
+            } catch (Return e) {
+                return e.value;
+            } finally {
+                frame = caller;
+            }
+            return Environment.NIL;
+        });
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Stmt.Declaration ast) {
+        frame[ast.getSlot()] = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Stmt.Assignment ast) {
+        if (ast.getReceiver() instanceof Ast.Expr.Access && !((Ast.Expr.Access) ast.getReceiver()).getReceiver().isPresent()) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            Environment.PlcObject value = visit(ast.getValue());
+            if (receiver.getDepth() == Resolver.LOCAL) {
+                frame[receiver.getSlot()] = value;
+            } else {
+                global(receiver).setValue(value);
+            }
+            return Environment.NIL;
+        }
+        return super.visit(ast);
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Stmt.If ast) {
+        if (requireType(Boolean.class, visit(ast.getCondition()))) {
+            execute(ast.getThenStatements());
+        } else {
+            execute(ast.getElseStatements());
+        }
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Stmt.For ast) {
+        Iterable<?> list = requireType(Iterable.class, visit(ast.getValue()));
+        for (Object obj : list) {
+            frame[ast.getSlot()] = (Environment.PlcObject) obj;
+            execute(ast.getStatements());
+        }
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Stmt.While ast) {
+        while (requireType(Boolean.class, visit(ast.getCondition()))) {
+            execute(ast.getStatements());
+        }
+        return Environment.NIL;
+    }
+
+    @Override
+    public Environment.PlcObject visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            return super.visit(ast);
+        } else if (ast.getDepth() == Resolver.LOCAL) {
+            return frame[ast.getSlot()];
+        } else {
+            return global(ast).getValue();
+        }
+    }
+
+    private void execute(List<Ast.Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            visit(statements.get(i));
+        }
+    }
+
+    /**
+     * Returns the variable of a global access, looking it up in the scope the
+     * first time.
+     */
+    private Environment.Variable global(Ast.Expr.Access ast) {
+        Environment.Variable variable = globals[ast.getSlot()];
+        if (variable == null) {
+            variable = getScope().lookupVariable(ast.getName());
+            globals[ast.getSlot()] = variable;
+        }
+        return variable;
+    }
+
+}
@@ -5,7 +5,7 @@ import jdk.jfr.internal.tool.Main;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
 
-public final class Generator implements Ast.Visitor<Void> {
+public final class Generator extends Traversal {
 
     private final PrintWriter writer;
     private int indent = 0;
@@ -14,21 +14,30 @@ public final class Generator implements Ast.Visitor<Void> {
         this.writer = writer;
     }
 
+    /**
+     * Schedules the objects to be written in order, where nodes are generated
+     * at the current indentation.
+     */
     private void print(Object... objects) {
         for (Object object : objects) {
             if (object instanceof Ast) {
+                int indent = this.indent;
+                then(() -> this.indent = indent);
                 visit((Ast) object);
             } else {
-                writer.write(object.toString());
+                String string = object.toString();
+                then(() -> writer.write(string));
             }
         }
     }
 
     private void newline(int indent) {
-        writer.println();
-        for (int i = 0; i < indent; i++) {
-            writer.write("    ");
-        }
+        then(() -> {
+            writer.println();
+            for (int i = 0; i < indent; i++) {
+                writer.write("    ");
+            }
+        });
     }
 
     @Override
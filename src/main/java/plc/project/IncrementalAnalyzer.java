@@ -0,0 +1,343 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analyzes successive versions of a {@link Ast.Source}, re-checking only the
+ * method bodies which may be affected by what changed since the last version.
+ *
+ * Declarations are compared by identity, so unchanged declarations must be the
+ * same objects in each version (as with {@link IncrementalParser}). For each
+ * method, the unqualified variables and functions it references are recorded.
+ * If any signature or field changed, the global scope is rebuilt (declaring
+ * every signature and analyzing the fields, which is cheap). A method body is
+ * re-checked if it is new or edited, or if it references a function whose
+ * signature changed or a field which changed. Other methods keep their
+ * annotations, which are equal to what a full analysis would produce.
+ *
+ * Like {@link ParallelAnalyzer}, all signatures are declared before any body is
+ * analyzed, and the exception of the first method to fail (in source order) is
+ * thrown, including methods which failed in an earlier version and were not
+ * re-checked.
+ */
+public final class IncrementalAnalyzer {
+
+    private final Scope parent;
+    private final TypeRegistry types;
+    private Scope scope = null;
+    private List<Ast.Field> fields = new ArrayList<>();
+    private Map<Ast.Method, Entry> methods = new IdentityHashMap<>();
+
+    /**
+     * The method declaring each {@code name/arity} key in the last version.
+     */
+    private Map<String, Ast.Method> owners = new HashMap<>();
+
+    public IncrementalAnalyzer(Scope parent) {
+        this(parent, Environment.getTypes());
+    }
+
+    public IncrementalAnalyzer(Scope parent, TypeRegistry types) {
+        this.parent = parent;
+        this.types = types;
+    }
+
+    /**
+     * Returns the global scope of the last version, which contains the fields
+     * and methods.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Analyzes the next version of the source, returning the number of method
+     * bodies which were re-checked.
+     */
+    public int analyze(Ast.Source ast) {
+        Map<Ast.Method, Entry> methods;
+        try {
+            methods = update(ast);
+        } catch (RuntimeException e) {
+            // The global scope could not be built, so the next version is
+            // analyzed from scratch.
+            scope = null;
+            fields = new ArrayList<>();
+            this.methods = new IdentityHashMap<>();
+            owners = new HashMap<>();
+            throw e;
+        }
+        int checked = 0;
+        RuntimeException error = null;
+        for (Ast.Method method : ast.getMethods()) {
+            Entry entry = methods.get(method);
+            if (entry.checked) {
+                checked++;
+            }
+            if (error == null) {
+                error = entry.error;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return checked;
+    }
+
+    /**
+     * Updates the state to the new version and re-checks the affected method
+     * bodies, returning the entries of the methods.
+     */
+    private Map<Ast.Method, Entry> update(Ast.Source ast) {
+        Map<Ast.Method, Entry> methods = new IdentityHashMap<>(ast.getMethods().size());
+        List<Entry> added = new ArrayList<>();
+        for (Ast.Method method : ast.getMethods()) {
+            Entry entry = this.methods.get(method);
+            if (entry == null) {
+                entry = new Entry(method);
+                added.add(entry);
+            }
+            entry.checked = false;
+            methods.put(method, entry);
+        }
+
+        // The keys whose signature changed (including added and removed
+        // methods) and the names of fields which changed.
+        Set<String> changed = new HashSet<>();
+        Map<String, String> removed = new HashMap<>();
+        if (methods.size() - added.size() < this.methods.size()) {
+            for (Entry entry : this.methods.values()) {
+                if (!methods.containsKey(entry.method)) {
+                    owners.remove(entry.key);
+                    removed.put(entry.key, entry.signature);
+                }
+            }
+        }
+        boolean duplicate = false;
+        for (Entry entry : added) {
+            if (owners.putIfAbsent(entry.key, entry.method) != null) {
+                duplicate = true;
+            } else if (!entry.signature.equals(removed.remove(entry.key))) {
+                changed.add(entry.key);
+            }
+        }
+        changed.addAll(removed.keySet());
+        Set<Ast.Field> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+        previous.addAll(fields);
+        for (Ast.Field field : ast.getFields()) {
+            if (!previous.remove(field)) {
+                changed.add(field.getName());
+            }
+        }
+        for (Ast.Field field : previous) {
+            changed.add(field.getName());
+        }
+
+        if (scope == null || !changed.isEmpty() || duplicate) {
+            scope = declare(ast);
+        } else {
+            // Every signature and field is the same, so the previous scope is
+            // still correct and only edited methods need their functions.
+            for (Entry entry : added) {
+                entry.method.setFunction(scope.lookupFunction(entry.method.getName(), entry.method.getParameters().size()));
+            }
+        }
+        fields = new ArrayList<>(ast.getFields());
+        this.methods = methods;
+
+        for (Ast.Method method : ast.getMethods()) {
+            Entry entry = methods.get(method);
+            if (entry.references == null || !changed.isEmpty() && !disjoint(entry.references, changed)) {
+                entry.references = references(method);
+                entry.error = null;
+                entry.checked = true;
+                try {
+                    Analyzer.within(scope, types).visitBody(method);
+                } catch (RuntimeException e) {
+                    entry.error = e;
+                }
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Returns a new global scope with every method declared and the fields
+     * analyzed, as in {@link ParallelAnalyzer}. Duplicate methods fail here.
+     */
+    private Scope declare(Ast.Source ast) {
+        Analyzer analyzer = new Analyzer(parent, types);
+        for (Ast.Method method : ast.getMethods()) {
+            analyzer.declare(method);
+        }
+        Environment.Function main = analyzer.getScope().lookupFunction("main", 0);
+        if (!main.getReturnType().equals(Environment.Type.INTEGER)) {
+            throw new RuntimeException("Main needs to return an Integer type.");
+        }
+        for (Ast.Field field : ast.getFields()) {
+            analyzer.visit(field);
+        }
+        return analyzer.getScope();
+    }
+
+    private static boolean disjoint(Set<String> references, Set<String> changed) {
+        for (String name : changed) {
+            if (references.contains(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the unqualified variable names and {@code name/arity} function
+     * keys referenced by the method. This may include local variables, which
+     * only means the method is re-checked more often than needed.
+     */
+    private static Set<String> references(Ast.Method method) {
+        References references = new References();
+        references.visit((Ast) method);
+        return references.names;
+    }
+
+    private static final class Entry {
+
+        private final Ast.Method method;
+        private final String key;
+        private final String signature;
+
+        /**
+         * The references of the body when it was last checked, or
+         * {@code null} if it hasn't been.
+         */
+        private Set<String> references = null;
+        private RuntimeException error = null;
+        private boolean checked = false;
+
+        private Entry(Ast.Method method) {
+            this.method = method;
+            this.key = method.getName() + "/" + method.getParameters().size();
+            this.signature = method.getParameterTypeNames() + ":" + method.getReturnTypeName().orElse("");
+        }
+
+    }
+
+    private static final class References extends Traversal {
+
+        private final Set<String> names = new HashSet<>();
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            visit(ast.getFields());
+            visit(ast.getMethods());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            visit(ast.getCondition());
+            visit(ast.getThenStatements());
+            visit(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            visit(ast.getValue());
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            visit(ast.getCondition());
+            visit(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            if (ast.getReceiver().isPresent()) {
+                visit(ast.getReceiver().get());
+            } else {
+                names.add(ast.getName());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            if (ast.getReceiver().isPresent()) {
+                visit(ast.getReceiver().get());
+            } else {
+                names.add(ast.getName() + "/" + ast.getArguments().size());
+            }
+            visit(ast.getArguments());
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the tokens and AST of a program up to date as it is edited, for
+ * editor integrations which would otherwise re-run the {@link Lexer} and
+ * {@link Parser} over the whole file on every keystroke.
+ *
+ * An edit only re-lexes the damaged tokens: lexing restarts at the first
+ * token touching the edit and stops as soon as a token starts at the same
+ * (shifted) position as an old token after the edit, since the lexer always
+ * starts in the same state at a token boundary. Likewise only the top-level
+ * {@link Ast.Field}s and {@link Ast.Method}s overlapping the re-lexed tokens
+ * are re-parsed; the others are reused as the same objects. Both stop early,
+ * so the lexing and parsing work depends on the size of the edit rather than
+ * the size of the file (the text and token arrays are still copied).
+ *
+ * If an edit changes the structure of the program in a way that cannot be
+ * resolved locally (e.g. a field ends up after a method), the declarations
+ * are re-parsed from the start so the result is always the same as a full
+ * parse. If an edit fails to lex or parse, the exception is thrown and the
+ * previous state is kept.
+ */
+public final class IncrementalParser {
+
+    private String text;
+    private TokenBuffer tokens;
+    private List<Ast> declarations;
+    private int[] starts;
+    private Ast.Source source;
+
+    public IncrementalParser(String text) throws ParseException {
+        this.text = text;
+        this.tokens = TokenBuffer.lex(text);
+        this.declarations = new ArrayList<>();
+        this.starts = new int[0];
+        parse(tokens, 0, new ArrayList<>(), new int[16], 0, Integer.MAX_VALUE, 0);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    public Ast.Source getSource() {
+        return source;
+    }
+
+    /**
+     * Replaces {@code removed} characters at {@code offset} with
+     * {@code inserted} and returns the updated AST.
+     */
+    public Ast.Source edit(int offset, int removed, String inserted) throws ParseException {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removed + " out of bounds for length " + text.length() + ".");
+        }
+        String text = this.text.substring(0, offset) + inserted + this.text.substring(offset + removed);
+        int delta = inserted.length() - removed;
+        int end = offset + inserted.length();
+
+        // Re-lex from the first token ending at or after the edit, until a
+        // token after the edit starts where an old one did.
+        int first = firstTokenEndingAfter(offset);
+        int start = first < tokens.size() ? Math.min(tokens.getStart(first), offset) : offset;
+        Lexer lexer = new Lexer(new Lexer.StringCharStream(text, start));
+        TokenBuffer relexed = new TokenBuffer(text, 16);
+        int resync = first;
+        while (true) {
+            long next = lexer.skipWhitespace();
+            if (next < 0) {
+                resync = tokens.size();
+                break;
+            }
+            if (next >= end) {
+                long old = next - delta;
+                while (resync < tokens.size() && tokens.getStart(resync) < old) {
+                    resync++;
+                }
+                if (resync < tokens.size() && tokens.getStart(resync) == old) {
+                    break;
+                }
+            }
+            lexer.lexNext(relexed);
+        }
+        TokenBuffer tokens = this.tokens.splice(text, first, resync, relexed, delta);
+        int shift = relexed.size() - (resync - first);
+
+        // Re-parse from the declaration containing the first re-lexed token,
+        // until reaching the (shifted) start of a declaration after them.
+        int reparsed = 0;
+        while (reparsed + 1 < starts.length && starts[reparsed + 1] <= first) {
+            reparsed++;
+        }
+        int reused = reparsed + 1;
+        while (reused < starts.length && starts[reused] < resync) {
+            reused++;
+        }
+        List<Ast> declarations = new ArrayList<>(this.declarations.subList(0, Math.min(reparsed, this.declarations.size())));
+        int[] starts = Arrays.copyOf(this.starts, Math.max(16, this.starts.length + relexed.size()));
+        int position = reparsed < this.starts.length ? this.starts[reparsed] : 0;
+        parse(tokens, position, declarations, starts, declarations.size(), reused, shift);
+        this.text = text;
+        return source;
+    }
+
+    /**
+     * Parses declarations from the given token, appending them to the given
+     * list, until reaching the start of the declaration {@code reused} of the
+     * previous state (shifted by {@code shift} tokens), after which the
+     * previous declarations are reused. Falls back to a full parse if the
+     * result would not be a valid {@code source}. The state is only updated
+     * once parsing succeeds.
+     */
+    private void parse(TokenBuffer tokens, int position, List<Ast> declarations, int[] starts, int count, int reused, int shift) {
+        Parser parser = new Parser(tokens, position);
+        boolean fields = declarations.isEmpty() || declarations.get(declarations.size() - 1) instanceof Ast.Field;
+        while (true) {
+            while (reused < this.starts.length && this.starts[reused] + shift < parser.getPosition()) {
+                reused++;
+            }
+            if (reused < this.starts.length && this.starts[reused] + shift == parser.getPosition()) {
+                for (int i = reused; i < this.starts.length; i++) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                    }
+                    starts[count++] = this.starts[i] + shift;
+                    declarations.add(this.declarations.get(i));
+                }
+                break;
+            }
+            int start = parser.getPosition();
+            Ast declaration = parser.parseDeclaration(fields);
+            if (declaration == null) {
+                break;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = start;
+            declarations.add(declaration);
+            fields = declaration instanceof Ast.Field;
+        }
+
+        List<Ast.Field> fieldList = new ArrayList<>();
+        List<Ast.Method> methodList = new ArrayList<>();
+        for (Ast declaration : declarations) {
+            if (declaration instanceof Ast.Field) {
+                if (!methodList.isEmpty()) {
+                    // A reused field now follows a method, so parse everything again.
+                    parse(tokens, 0, new ArrayList<>(), new int[16], 0, Integer.MAX_VALUE, 0);
+                    return;
+                }
+                fieldList.add((Ast.Field) declaration);
+            } else {
+                methodList.add((Ast.Method) declaration);
+            }
+        }
+        this.tokens = tokens;
+        this.declarations = declarations;
+        this.starts = Arrays.copyOf(starts, count);
+        this.source = new Ast.Source(fieldList, methodList);
+    }
+
+    /**
+     * Returns the index of the first token which ends at or after
+     * {@code offset}, or the number of tokens if there is none.
+     */
+    private int firstTokenEndingAfter(int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens.getStart(middle) + tokens.getLength(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
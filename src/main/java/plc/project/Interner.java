@@ -0,0 +1,245 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Rebuilds an AST with structurally identical, side-effect-free expressions
+ * (literals, groups, binaries and accesses without any function calls) shared
+ * as a single node, to reduce the memory of repetitive programs.
+ *
+ * This must run before the {@link Analyzer}, since the shared nodes are
+ * annotated once per use. To keep those annotations correct, an expression
+ * which accesses variables is only shared where each of its variables has the
+ * same declaration: within a block (and the blocks nested in it), until one of
+ * them is declared again. Expressions without variables (e.g. literals and
+ * arithmetic on them) have the same type everywhere, so are shared across the
+ * whole source. Function calls are never shared, but their arguments may be.
+ */
+public final class Interner implements Ast.Visitor<Ast> {
+
+    private final Map<Ast.Expr, Ast.Expr> constants = new HashMap<>();
+
+    /**
+     * The unqualified variable names of each shared expression, which is also
+     * how the expressions that may be shared are recognized.
+     */
+    private final Map<Ast.Expr, Set<String>> variables = new IdentityHashMap<>();
+    private Table table = new Table(null);
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        List<Ast.Field> fields = new ArrayList<>(ast.getFields().size());
+        for (Ast.Field field : ast.getFields()) {
+            fields.add(visit(field));
+        }
+        List<Ast.Method> methods = new ArrayList<>(ast.getMethods().size());
+        for (Ast.Method method : ast.getMethods()) {
+            methods.add(visit(method));
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    @Override
+    public Ast.Field visit(Ast.Field ast) {
+        Optional<Ast.Expr> value = optional(ast.getValue());
+        table.declare(ast.getName());
+        return new Ast.Field(ast.getName(), ast.getTypeName(), value);
+    }
+
+    @Override
+    public Ast.Method visit(Ast.Method ast) {
+        Table fields = table;
+        table = new Table(null);
+        try {
+            return new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(),
+                    ast.getReturnTypeName(), statements(ast.getStatements()));
+        } finally {
+            table = fields;
+        }
+    }
+
+    @Override
+    public Ast.Stmt.Expression visit(Ast.Stmt.Expression ast) {
+        return new Ast.Stmt.Expression(expr(ast.getExpression()));
+    }
+
+    @Override
+    public Ast.Stmt.Declaration visit(Ast.Stmt.Declaration ast) {
+        Optional<Ast.Expr> value = optional(ast.getValue());
+        table.declare(ast.getName());
+        return new Ast.Stmt.Declaration(ast.getName(), ast.getTypeName(), value);
+    }
+
+    @Override
+    public Ast.Stmt.Assignment visit(Ast.Stmt.Assignment ast) {
+        return new Ast.Stmt.Assignment(expr(ast.getReceiver()), expr(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Stmt.If visit(Ast.Stmt.If ast) {
+        return new Ast.Stmt.If(expr(ast.getCondition()), block(null, ast.getThenStatements()),
+                block(null, ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Stmt.For visit(Ast.Stmt.For ast) {
+        return new Ast.Stmt.For(ast.getName(), expr(ast.getValue()), block(ast.getName(), ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Stmt.While visit(Ast.Stmt.While ast) {
+        return new Ast.Stmt.While(expr(ast.getCondition()), block(null, ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Stmt.Return visit(Ast.Stmt.Return ast) {
+        return new Ast.Stmt.Return(expr(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Literal ast) {
+        return intern(ast, Collections.emptySet());
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = expr(ast.getExpression());
+        Ast.Expr.Group group = expression == ast.getExpression() ? ast : new Ast.Expr.Group(expression);
+        return shared(expression) ? intern(group, variables.get(expression)) : group;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Binary ast) {
+        Ast.Expr left = expr(ast.getLeft());
+        Ast.Expr right = expr(ast.getRight());
+        Ast.Expr.Binary binary = left == ast.getLeft() && right == ast.getRight()
+                ? ast : new Ast.Expr.Binary(ast.getOperator(), left, right);
+        if (!shared(left) || !shared(right)) {
+            return binary;
+        }
+        Set<String> names = variables.get(left);
+        if (!variables.get(right).isEmpty()) {
+            names = new HashSet<>(names);
+            names.addAll(variables.get(right));
+        }
+        return intern(binary, names);
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Access ast) {
+        if (!ast.getReceiver().isPresent()) {
+            return intern(ast, Collections.singleton(ast.getName()));
+        }
+        Ast.Expr receiver = expr(ast.getReceiver().get());
+        Ast.Expr.Access access = receiver == ast.getReceiver().get()
+                ? ast : new Ast.Expr.Access(Optional.of(receiver), ast.getName());
+        return shared(receiver) ? intern(access, variables.get(receiver)) : access;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Function ast) {
+        Optional<Ast.Expr> receiver = optional(ast.getReceiver());
+        List<Ast.Expr> arguments = new ArrayList<>(ast.getArguments().size());
+        for (Ast.Expr argument : ast.getArguments()) {
+            arguments.add(expr(argument));
+        }
+        return new Ast.Expr.Function(receiver, ast.getName(), arguments);
+    }
+
+    private Ast.Expr expr(Ast.Expr ast) {
+        return (Ast.Expr) visit(ast);
+    }
+
+    private Optional<Ast.Expr> optional(Optional<Ast.Expr> ast) {
+        return ast.isPresent() ? Optional.of(expr(ast.get())) : ast;
+    }
+
+    private List<Ast.Stmt> statements(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> result = new ArrayList<>(statements.size());
+        for (Ast.Stmt statement : statements) {
+            result.add((Ast.Stmt) visit(statement));
+        }
+        return result;
+    }
+
+    /**
+     * Visits the statements of a nested block, which sees the expressions
+     * shared in the enclosing block but whose own don't escape it.
+     */
+    private List<Ast.Stmt> block(String declaration, List<Ast.Stmt> statements) {
+        if (statements.isEmpty()) {
+            return statements;
+        }
+        Table parent = table;
+        table = new Table(parent);
+        try {
+            if (declaration != null) {
+                table.declare(declaration);
+            }
+            return statements(statements);
+        } finally {
+            table = parent;
+        }
+    }
+
+    private boolean shared(Ast.Expr ast) {
+        return variables.containsKey(ast);
+    }
+
+    /**
+     * Returns the existing node equal to {@code ast} where it is visible, or
+     * else makes {@code ast} the shared node.
+     */
+    private Ast.Expr intern(Ast.Expr ast, Set<String> names) {
+        Map<Ast.Expr, Ast.Expr> nodes = names.isEmpty() ? constants : table.nodes;
+        Ast.Expr existing = nodes.putIfAbsent(ast, ast);
+        if (existing != null) {
+            return existing;
+        }
+        variables.put(ast, names);
+        for (String name : names) {
+            table.uses.computeIfAbsent(name, k -> new ArrayList<>()).add(ast);
+        }
+        return ast;
+    }
+
+    /**
+     * The expressions with variables which may be shared in the current block.
+     */
+    private static final class Table {
+
+        private final Map<Ast.Expr, Ast.Expr> nodes;
+        private final Map<String, List<Ast.Expr>> uses;
+
+        private Table(Table parent) {
+            nodes = parent == null ? new HashMap<>() : new HashMap<>(parent.nodes);
+            uses = new HashMap<>();
+            if (parent != null) {
+                parent.uses.forEach((name, nodes) -> uses.put(name, new ArrayList<>(nodes)));
+            }
+        }
+
+        /**
+         * Stops sharing the expressions using a variable which is declared
+         * again, since later uses refer to the new declaration.
+         */
+        private void declare(String name) {
+            List<Ast.Expr> removed = uses.remove(name);
+            if (removed != null) {
+                for (Ast.Expr node : removed) {
+                    nodes.remove(node);
+                }
+            }
+        }
+
+    }
+
+}
@@ -323,7 +323,6 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             return obj.callMethod(ast.getName(), argList);
         }
         else {
-            Environment.PlcObject obj = new Environment.PlcObject(scope, ast.getName());
             Environment.Function func = scope.lookupFunction(ast.getName(), argList.size());
             return Environment.create(func.invoke(argList).getValue());
         }
@@ -332,7 +331,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
-    private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
+    static <T> T requireType(Class<T> type, Environment.PlcObject object) {
         if (type.isInstance(object.getValue())) {
             return type.cast(object.getValue());
         } else {
@@ -343,9 +342,9 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     /**
      * Exception class for returning values.
      */
-    private static class Return extends RuntimeException {
+    static class Return extends RuntimeException {
 
-        private final Environment.PlcObject value;
+        final Environment.PlcObject value;
 
         private Return(Environment.PlcObject value) {
             this.value = value;
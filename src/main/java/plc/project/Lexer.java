@@ -10,19 +10,25 @@ import java.util.ArrayList;
  *  - {@link #lexToken()}, which lexes the next token
  *  - {@link CharStream}, which manages the state of the lexer and literals
  *
- * If the lexer fails to parse something (such as an unterminated string) you
- * should throw a {@link ParseException} with an index at the character which is
- * invalid or missing.
+ * Tokens are recognized by running the DFA in {@link LexerTable} over the char
+ * stream, which only does a table lookup per character. If the lexer fails to
+ * parse something (such as an unterminated string) a {@link ParseException} is
+ * thrown with an index at the character which is invalid or missing.
  *
  * The {@link #peek(String...)} and {@link #match(String...)} functions are
- * helpers you need to use, they will make the implementation a lot easier.
+ * regex based helpers kept for ad-hoc matching; they are not used on the
+ * lexing path since they compile a pattern for every character.
  */
 public final class Lexer {
 
     private final CharStream chars;
 
     public Lexer(String input) {
-        chars = new CharStream(input);
+        this(new StringCharStream(input));
+    }
+
+    public Lexer(CharStream chars) {
+        this.chars = chars;
     }
 
     /**
@@ -31,116 +37,105 @@ public final class Lexer {
      */
     public List<Token> lex() {
         List<Token> tokens = new ArrayList<Token>();
-        // As long as peek finds any character
-        while (peek(".")) {
-            Token token = new Token(null, null, 0);
+        while (true) {
             // Skip any whitespace
-            if (peek("[ \b\n\r\t]")) {
-                match("[ \b\n\r\t]");
-                chars.skip();
-            }
-            else {
-                // Begin lexxing
-                token = lexToken();
-                tokens.add(token);
+            while (chars.has(0) && LexerTable.isWhitespace(chars.get(0))) {
+                chars.advance();
             }
+            chars.skip();
+            if (!chars.has(0))
+                return tokens;
+            tokens.add(lexToken());
+        }
+    }
+
+    /**
+     * Lexes the input into a packed {@link TokenBuffer}, which must be over
+     * the same input. Unlike {@link #lex()} no {@link Token}s or literal copies
+     * are created.
+     */
+    void lex(TokenBuffer buffer) {
+        while (skipWhitespace() >= 0) {
+            lexNext(buffer);
+        }
+    }
+
+    /**
+     * Skips whitespace, returning the index of the next token or {@code -1} if
+     * the input is exhausted.
+     */
+    long skipWhitespace() {
+        while (chars.has(0) && LexerTable.isWhitespace(chars.get(0))) {
+            chars.advance();
         }
-        return tokens;
+        chars.skip();
+        return chars.has(0) ? chars.index : -1;
     }
 
     /**
-     * This method determines the type of the next token, delegating to the
-     * appropriate lex method. As such, it is best for this method to not change
-     * the state of the char stream (thus, use peek not match).
+     * Lexes the next token into the buffer. Whitespace must already have been
+     * skipped with {@link #skipWhitespace()}.
+     */
+    void lexNext(TokenBuffer buffer) {
+        int start = (int) chars.index;
+        Token.Type type = scan();
+        chars.skip();
+        buffer.add(type, start, (int) chars.index - start);
+    }
+
+    /**
+     * This method lexes the next token by following {@link LexerTable}
+     * transitions for as long as possible (maximal munch). The type of the
+     * token is decided by the state the DFA stops in, so no backtracking is
+     * needed.
      *
      * The next character should start a valid token since whitespace is handled
      * by {@link #lex()}
      */
     public Token lexToken() {
-        Token token = new Token(null, null, chars.index);
-        if (peek("[A-Za-z_][A-Za-z0-9_-]*"))
-            token = lexIdentifier();
-        else if (peek("([+-]?)|[0-9]+(.[0-9]+)?"))
-            token = lexNumber();
-        else if (peek("[\']"))
-            token = lexCharacter();
-        else if (peek("[\"]"))
-            token = lexString();
-        else if (peek("\\\\[bnrt'\"\\\\]"))
-            lexEscape();
-        else if (peek("([<>!=]=)|."))
-            token = lexOperator();
-        else
-            throw new ParseException(chars.input, chars.index);
-        return token;
+        return chars.emit(scan());
+    }
+
+    /**
+     * Advances the char stream past the next token and returns its type,
+     * see {@link #lexToken()}.
+     */
+    private Token.Type scan() {
+        int state = LexerTable.START;
+        while (chars.has(0)) {
+            int next = LexerTable.next(state, chars.get(0));
+            if (next == LexerTable.DEAD)
+                break;
+            state = next;
+            chars.advance();
+        }
+        Token.Type type = LexerTable.accept(state);
+        if (type == null) {
+            if (state == LexerTable.START)
+                throw new ParseException("Unexpected character", chars.index);
+            throw new ParseException("Incomplete token", chars.index);
+        }
+        return type;
     }
 
+    /**
+     * Lexes an identifier. As with the other lexXXX methods the DFA decides
+     * the token type, so this is equivalent to {@link #lexToken()}.
+     */
     public Token lexIdentifier() {
-        match("[A-Za-z_]");
-        while (match("[A-Za-z0-9_-]"));
-        return chars.emit(Token.Type.IDENTIFIER);
+        return lexToken();
     }
 
     public Token lexNumber() {
-        // When there is only a plus or minus sign
-        if (peek("[+-]")) {
-            match("[+-]");
-            if (!chars.has(chars.index) || peek(" ")) {
-                return chars.emit(Token.Type.OPERATOR);
-            }
-        }
-        // Match sign and integer
-        match("[+-]?");
-        while (match("[0-9]"));
-        // Match in the case of a decimal
-        if (peek("[.]")) {
-            match("[.]");
-            if (!peek("[0-9]"))
-                throw new ParseException(chars.input, chars.index);
-            while (match("[0-9]"));
-            return chars.emit(Token.Type.DECIMAL);
-        }
-        return chars.emit(Token.Type.INTEGER);
+        return lexToken();
     }
 
     public Token lexCharacter() {
-        match("\'");
-        // Occurrence of backslash
-        if (peek("\\\\", "[bnrt\'\"]", "\'"))
-            match("\\\\", "[bnrt\'\"]", "\'");
-        // No occurrence of backslash
-        else if (peek("[^\']", "\'"))
-            match("[^\']", "\'");
-        else
-            throw new ParseException(chars.input, chars.index);
-        return chars.emit(Token.Type.CHARACTER);
+        return lexToken();
     }
 
     public Token lexString() {
-        match("\"");
-        // If it is an empty string
-        if (peek("\"")) {
-            match("\"");
-            return chars.emit(Token.Type.STRING);
-        }
-        // Not an empty string
-        else {
-            while (peek("[^\"]")) {
-                // If there is a backslash, make sure it is valid
-                if (peek("\\\\")) {
-                    if (!peek("\\\\", "[bnrt\'\"\\\\]"))
-                        throw new ParseException(chars.input, chars.index);
-                    else
-                        match("\\\\", "[bnrt\'\"\\\\]");
-                }
-                // Match normal string conditions
-                match("[^\"]");
-            }
-        }
-        if (!peek("\""))
-            throw new ParseException(chars.input, chars.index);
-        match("\"");
-        return chars.emit(Token.Type.STRING);
+        return lexToken();
     }
 
     public void lexEscape() {
@@ -148,13 +143,7 @@ public final class Lexer {
     }
 
     public Token lexOperator() {
-        // Special cases for comparators
-        if (peek("[<>!=]", "="))
-            match("[<>!=]", "=");
-        else
-            // Anything else left (only operators and special symbols
-            match("[^ \b\n\r\t]");
-        return chars.emit(Token.Type.OPERATOR);
+        return lexToken();
     }
 
     /**
@@ -187,30 +176,38 @@ public final class Lexer {
     }
 
     /**
-     * A helper class maintaining the input string, current index of the char
-     * stream, and the current length of the token being matched.
+     * A helper class maintaining the input, current index of the char stream,
+     * and the current length of the token being matched. Backends provide
+     * {@link #has(int)}, {@link #get(int)} and {@link #substring(long, long)}
+     * over their input; {@link StringCharStream} is used for {@link String}
+     * input and {@link MappedCharStream} for memory-mapped files.
      *
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
-     * ParseException} which is thrown.
+     * ParseException} which is thrown. Positions are {@code long} offsets so
+     * inputs larger than 2 GB can be lexed.
      */
-    public static final class CharStream {
+    public static abstract class CharStream {
 
-        private final String input;
-        private int index = 0;
-        private int length = 0;
+        protected long index = 0;
+        protected int length = 0;
 
-        public CharStream(String input) {
-            this.input = input;
-        }
+        /**
+         * Returns true if there is a character at index + offset.
+         */
+        public abstract boolean has(int offset);
 
-        public boolean has(int offset) {
-            return index + offset < input.length();
-        }
+        /**
+         * Gets the character at index + offset.
+         */
+        public abstract char get(int offset);
 
-        public char get(int offset) {
-            return input.charAt(index + offset);
-        }
+        /**
+         * Returns the input between the absolute offsets {@code start} and
+         * {@code end}. This is only called for the token being emitted, so
+         * backends may discard input before the start of the current token.
+         */
+        protected abstract String substring(long start, long end);
 
         public void advance() {
             index++;
@@ -222,9 +219,46 @@ public final class Lexer {
         }
 
         public Token emit(Token.Type type) {
-            int start = index - length;
+            long start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            return new Token(type, substring(start, index), start);
+        }
+
+    }
+
+    /**
+     * A {@link CharStream} over an in-memory {@link String}.
+     */
+    public static final class StringCharStream extends CharStream {
+
+        private final String input;
+
+        public StringCharStream(String input) {
+            this(input, 0);
+        }
+
+        /**
+         * Creates a stream starting at the given index of the input, which
+         * should be the start of a token or whitespace.
+         */
+        public StringCharStream(String input, int index) {
+            this.input = input;
+            this.index = index;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < input.length();
+        }
+
+        @Override
+        public char get(int offset) {
+            return input.charAt((int) index + offset);
+        }
+
+        @Override
+        protected String substring(long start, long end) {
+            return input.substring((int) start, (int) end);
         }
 
     }
@@ -0,0 +1,183 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * The precomputed tables behind the {@link Lexer}. Every character is first
+ * mapped to one of a small number of character classes, and the token grammar
+ * is encoded as a DFA over those classes:
+ *
+ *  - identifier ::= [A-Za-z_] [A-Za-z0-9_-]*
+ *  - number     ::= [+-]? [0-9]+ ('.' [0-9]+)?
+ *  - character  ::= ['] ([^'\n\r\\] | escape) [']
+ *  - string     ::= '"' ([^"\n\r\\] | escape)* '"'
+ *  - escape     ::= '\' [bnrt'"\\]
+ *  - operator   ::= [<>!=] '='? | any other non-whitespace character
+ *
+ * A token is lexed by following transitions until the next character has none
+ * (or the input ends). If the final state accepts, its {@link Token.Type} is
+ * the type of the token; otherwise the token is incomplete and a
+ * {@link ParseException} should be thrown at the current index.
+ */
+final class LexerTable {
+
+    static final int DEAD = -1;
+    static final int START = 0;
+
+    // character classes
+    private static final int OTHER = 0;
+    private static final int WHITESPACE = 1;
+    private static final int NEWLINE = 2;
+    private static final int LETTER = 3;
+    private static final int ESCAPE_LETTER = 4;
+    private static final int DIGIT = 5;
+    private static final int PLUS = 6;
+    private static final int MINUS = 7;
+    private static final int DOT = 8;
+    private static final int SINGLE_QUOTE = 9;
+    private static final int DOUBLE_QUOTE = 10;
+    private static final int BACKSLASH = 11;
+    private static final int COMPARATOR = 12;
+    private static final int EQUALS = 13;
+    private static final int CLASS_COUNT = 14;
+
+    // states (START is 0)
+    private static final int IDENTIFIER = 1;
+    private static final int SIGN = 2;
+    private static final int INTEGER = 3;
+    private static final int POINT = 4;
+    private static final int DECIMAL = 5;
+    private static final int CHARACTER_OPEN = 6;
+    private static final int CHARACTER_ESCAPE = 7;
+    private static final int CHARACTER_BODY = 8;
+    private static final int CHARACTER = 9;
+    private static final int STRING_BODY = 10;
+    private static final int STRING_ESCAPE = 11;
+    private static final int STRING = 12;
+    private static final int COMPARISON = 13;
+    private static final int OPERATOR = 14;
+    private static final int STATE_COUNT = 15;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+    private static final Token.Type[] ACCEPT = new Token.Type[STATE_COUNT];
+
+    private LexerTable() {}
+
+    /**
+     * Returns the character class of {@code c}. Anything outside of ASCII is
+     * {@code OTHER}, which is only meaningful inside literals or as a single
+     * character operator.
+     */
+    static int classOf(char c) {
+        return c < 128 ? CLASSES[c] : OTHER;
+    }
+
+    /**
+     * Returns the state reached from {@code state} on {@code c}, or
+     * {@link #DEAD} if there is no transition.
+     */
+    static int next(int state, char c) {
+        return TRANSITIONS[state * CLASS_COUNT + classOf(c)];
+    }
+
+    /**
+     * Returns the token type accepted in {@code state}, or {@code null} if the
+     * state is not accepting.
+     */
+    static Token.Type accept(int state) {
+        return ACCEPT[state];
+    }
+
+    /**
+     * Returns true if {@code c} is whitespace skipped between tokens.
+     */
+    static boolean isWhitespace(char c) {
+        int cls = classOf(c);
+        return cls == WHITESPACE || cls == NEWLINE;
+    }
+
+    private static void classify(int cls, String chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] = (byte) cls;
+        }
+    }
+
+    private static void classify(int cls, char from, char to) {
+        for (char c = from; c <= to; c++) {
+            CLASSES[c] = (byte) cls;
+        }
+    }
+
+    private static void on(int state, int next, int... classes) {
+        for (int cls : classes) {
+            TRANSITIONS[state * CLASS_COUNT + cls] = (byte) next;
+        }
+    }
+
+    private static void otherwise(int state, int next, int... excluded) {
+        for (int cls = 0; cls < CLASS_COUNT; cls++) {
+            TRANSITIONS[state * CLASS_COUNT + cls] = (byte) next;
+        }
+        for (int cls : excluded) {
+            TRANSITIONS[state * CLASS_COUNT + cls] = (byte) DEAD;
+        }
+    }
+
+    static {
+        classify(WHITESPACE, " \b\t");
+        classify(NEWLINE, "\n\r");
+        classify(LETTER, 'A', 'Z');
+        classify(LETTER, 'a', 'z');
+        classify(LETTER, "_");
+        classify(ESCAPE_LETTER, "bnrt");
+        classify(DIGIT, '0', '9');
+        classify(PLUS, "+");
+        classify(MINUS, "-");
+        classify(DOT, ".");
+        classify(SINGLE_QUOTE, "'");
+        classify(DOUBLE_QUOTE, "\"");
+        classify(BACKSLASH, "\\");
+        classify(COMPARATOR, "<>!");
+        classify(EQUALS, "=");
+
+        Arrays.fill(TRANSITIONS, (byte) DEAD);
+        otherwise(START, OPERATOR, WHITESPACE, NEWLINE);
+        on(START, IDENTIFIER, LETTER, ESCAPE_LETTER);
+        on(START, INTEGER, DIGIT);
+        on(START, SIGN, PLUS, MINUS);
+        on(START, CHARACTER_OPEN, SINGLE_QUOTE);
+        on(START, STRING_BODY, DOUBLE_QUOTE);
+        on(START, COMPARISON, COMPARATOR, EQUALS);
+
+        on(IDENTIFIER, IDENTIFIER, LETTER, ESCAPE_LETTER, DIGIT, MINUS);
+
+        on(SIGN, INTEGER, DIGIT);
+        on(INTEGER, INTEGER, DIGIT);
+        on(INTEGER, POINT, DOT);
+        on(POINT, DECIMAL, DIGIT);
+        on(DECIMAL, DECIMAL, DIGIT);
+
+        otherwise(CHARACTER_OPEN, CHARACTER_BODY, SINGLE_QUOTE, NEWLINE, BACKSLASH);
+        on(CHARACTER_OPEN, CHARACTER_ESCAPE, BACKSLASH);
+        on(CHARACTER_ESCAPE, CHARACTER_BODY, ESCAPE_LETTER, SINGLE_QUOTE, DOUBLE_QUOTE, BACKSLASH);
+        on(CHARACTER_BODY, CHARACTER, SINGLE_QUOTE);
+
+        otherwise(STRING_BODY, STRING_BODY, DOUBLE_QUOTE, NEWLINE, BACKSLASH);
+        on(STRING_BODY, STRING_ESCAPE, BACKSLASH);
+        on(STRING_BODY, STRING, DOUBLE_QUOTE);
+        on(STRING_ESCAPE, STRING_BODY, ESCAPE_LETTER, SINGLE_QUOTE, DOUBLE_QUOTE, BACKSLASH);
+
+        on(COMPARISON, OPERATOR, EQUALS);
+
+        ACCEPT[IDENTIFIER] = Token.Type.IDENTIFIER;
+        ACCEPT[SIGN] = Token.Type.OPERATOR;
+        ACCEPT[INTEGER] = Token.Type.INTEGER;
+        ACCEPT[DECIMAL] = Token.Type.DECIMAL;
+        ACCEPT[CHARACTER] = Token.Type.CHARACTER;
+        ACCEPT[STRING] = Token.Type.STRING;
+        ACCEPT[COMPARISON] = Token.Type.OPERATOR;
+        ACCEPT[OPERATOR] = Token.Type.OPERATOR;
+    }
+
+}
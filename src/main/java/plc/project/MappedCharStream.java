@@ -0,0 +1,149 @@
+package plc.project;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Lexer.CharStream} which lexes straight from a memory-mapped file,
+ * so very large sources never need to be loaded into a {@link String} (which
+ * would double the heap and cannot exceed 2 GB).
+ *
+ * The file is mapped in regions of {@link #REGION_SIZE} bytes, and each region
+ * is decoded on demand into a chunked {@link CharBuffer} window. Characters
+ * before the token currently being lexed are dropped whenever the window is
+ * refilled, so only the pages being read and one window are resident at a
+ * time. Positions are {@code long} character offsets, see
+ * {@link Token#getOffset()}.
+ */
+public final class MappedCharStream extends Lexer.CharStream implements Closeable {
+
+    public static final long REGION_SIZE = 1L << 28;
+    public static final int WINDOW_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long regionSize;
+    private final CharsetDecoder decoder;
+    private MappedByteBuffer region;
+    private long regionStart = 0;
+    private CharBuffer window;
+    private long windowStart = 0;
+    private boolean eof = false;
+
+    public MappedCharStream(Path path) throws IOException {
+        this(path, StandardCharsets.UTF_8);
+    }
+
+    public MappedCharStream(Path path, Charset charset) throws IOException {
+        this(path, charset, REGION_SIZE, WINDOW_SIZE);
+    }
+
+    MappedCharStream(Path path, Charset charset, long regionSize, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionSize = regionSize;
+        this.decoder = charset.newDecoder();
+        this.region = map(0);
+        this.window = CharBuffer.allocate(windowSize);
+        this.window.flip();
+    }
+
+    @Override
+    public boolean has(int offset) {
+        while (index + offset >= windowStart + window.limit()) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public char get(int offset) {
+        return window.get((int) (index + offset - windowStart));
+    }
+
+    @Override
+    protected String substring(long start, long end) {
+        return new String(window.array(), (int) (start - windowStart), (int) (end - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decodes more of the file into the window, keeping the characters of the
+     * current token. Returns false once the whole file has been decoded.
+     */
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        long start = index - length;
+        window.position((int) (start - windowStart));
+        window.compact();
+        windowStart = start;
+        if (!window.hasRemaining()) {
+            grow();
+        }
+        try {
+            int before = window.position();
+            while (window.position() == before && !eof) {
+                boolean last = regionStart + region.capacity() == size;
+                CoderResult result = decoder.decode(region, window, last);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isUnderflow()) {
+                    if (last) {
+                        decoder.flush(window);
+                        eof = true;
+                    } else {
+                        region = map(regionStart + region.position());
+                    }
+                } else if (window.position() == before) {
+                    // The next character is a surrogate pair, but only one
+                    // char is free.
+                    grow();
+                }
+            }
+            window.flip();
+            return window.limit() > before;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Doubles the capacity of the window, which must be being filled.
+     */
+    private void grow() {
+        CharBuffer larger = CharBuffer.allocate(window.capacity() * 2);
+        window.flip();
+        larger.put(window);
+        window = larger;
+    }
+
+    /**
+     * Maps the region starting at the byte offset {@code start}. Any bytes of
+     * a partially decoded character at the end of the previous region are
+     * included again at the start of the new one.
+     */
+    private MappedByteBuffer map(long start) throws IOException {
+        regionStart = start;
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+    }
+
+}
@@ -0,0 +1,116 @@
+package plc.project;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Analyzes a {@link Ast.Source} with the bodies of its {@link Ast.Method}s
+ * analyzed in parallel on a {@link ForkJoinPool}, for large programs with
+ * many methods.
+ *
+ * All method signatures are first declared in the global scope, then
+ * {@code main} is checked and the fields are analyzed in order, as in
+ * {@link Analyzer#visit(Ast.Source)}. The global scope is then only read, so
+ * the method bodies are analyzed concurrently, each with its own
+ * {@link Analyzer} and child scopes. Declaring the signatures first means
+ * methods may call methods declared after them. If several methods fail, the
+ * exception of the first one (in source order) is thrown.
+ */
+public final class ParallelAnalyzer {
+
+    /**
+     * The number of methods below which a task analyzes its methods itself
+     * rather than splitting them between two subtasks.
+     */
+    static final int THRESHOLD = 16;
+
+    private final Analyzer analyzer;
+    private final ForkJoinPool pool;
+
+    public ParallelAnalyzer(Scope parent) {
+        this(parent, ForkJoinPool.commonPool());
+    }
+
+    public ParallelAnalyzer(Scope parent, ForkJoinPool pool) {
+        this(parent, Environment.getTypes(), pool);
+    }
+
+    public ParallelAnalyzer(Scope parent, TypeRegistry types, ForkJoinPool pool) {
+        this.analyzer = new Analyzer(parent, types);
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the global scope, which contains the fields and methods.
+     */
+    public Scope getScope() {
+        return analyzer.getScope();
+    }
+
+    public void analyze(Ast.Source ast) {
+        List<Ast.Method> methods = ast.getMethods();
+        for (Ast.Method method : methods) {
+            analyzer.declare(method);
+        }
+        Environment.Function main = analyzer.getScope().lookupFunction("main", 0);
+        if (!main.getReturnType().equals(Environment.Type.INTEGER)) {
+            throw new RuntimeException("Main needs to return an Integer type.");
+        }
+        for (Ast.Field field : ast.getFields()) {
+            analyzer.visit(field);
+        }
+
+        RuntimeException[] errors = new RuntimeException[methods.size()];
+        pool.invoke(new AnalyzeTask(methods, errors, 0, methods.size()));
+        for (RuntimeException error : errors) {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Analyzes the bodies of the methods from {@code from} (inclusive) to
+     * {@code to} (exclusive), splitting the range in half until it is below
+     * {@link #THRESHOLD}. Each method's exception is stored at its index.
+     */
+    private final class AnalyzeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Ast.Method> methods;
+        private final RuntimeException[] errors;
+        private final int from;
+        private final int to;
+
+        private AnalyzeTask(List<Ast.Method> methods, RuntimeException[] errors, int from, int to) {
+            this.methods = methods;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    // A new analyzer for each method, since a failed one may
+                    // leave its scope and method behind.
+                    Analyzer local = Analyzer.within(analyzer.getScope(), analyzer.getTypes());
+                    try {
+                        local.visitBody(methods.get(i));
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new AnalyzeTask(methods, errors, from, middle),
+                        new AnalyzeTask(methods, errors, middle, to));
+            }
+        }
+
+    }
+
+}
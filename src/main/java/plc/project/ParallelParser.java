@@ -0,0 +1,173 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the {@code source} rule with the {@link Ast.Method}s parsed in
+ * parallel on a {@link ForkJoinPool}, for large programs with many methods.
+ *
+ * A pre-scan over the token kinds finds the {@code DEF} tokens outside of any
+ * {@code DO ... END} block, which are where the top-level methods start. The
+ * fields are parsed first, then the methods between those boundaries are
+ * parsed independently by separate {@link Parser}s over the same (read-only)
+ * {@link TokenBuffer}. The results are assembled in source order.
+ *
+ * The result is always the same as {@link Parser#parseSource()}: if a method
+ * does not end where the pre-scan expected (e.g. a missing {@code END}), that
+ * part of the source is parsed again sequentially, and if several methods
+ * fail the exception of the first one (by source index) is thrown.
+ */
+public final class ParallelParser {
+
+    /**
+     * The number of methods below which a task parses its methods itself
+     * rather than splitting them between two subtasks.
+     */
+    static final int THRESHOLD = 16;
+
+    private final TokenBuffer tokens;
+    private final ForkJoinPool pool;
+    private int sequential = 0;
+
+    public ParallelParser(TokenBuffer tokens) {
+        this(tokens, ForkJoinPool.commonPool());
+    }
+
+    public ParallelParser(TokenBuffer tokens, ForkJoinPool pool) {
+        this.tokens = tokens;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses the {@code source} rule, see {@link Parser#parseSource()}.
+     */
+    public Ast.Source parseSource() throws ParseException {
+        List<Ast.Field> fields = new ArrayList<>();
+        Parser parser = new Parser(tokens);
+        while (parser.getPosition() < tokens.size() && tokens.getKind(parser.getPosition()) == Token.Kind.LET) {
+            fields.add(parser.parseField());
+        }
+        sequential = 0;
+        int start = parser.getPosition();
+        if (start == tokens.size() || tokens.getKind(start) != Token.Kind.DEF) {
+            return new Ast.Source(fields, new ArrayList<>());
+        }
+
+        int[] starts = scan(start);
+        Ast.Method[] methods = new Ast.Method[starts.length];
+        int[] ends = new int[starts.length];
+        RuntimeException[] errors = new RuntimeException[starts.length];
+        pool.invoke(new ParseTask(starts, methods, ends, errors, 0, starts.length));
+
+        List<Ast.Method> result = new ArrayList<>(starts.length);
+        int position = start;
+        for (int i = 0; i < starts.length && starts[i] == position; i++) {
+            if (errors[i] != null) {
+                throw errors[i];
+            }
+            result.add(methods[i]);
+            position = ends[i];
+        }
+        // Anything the pre-scan got wrong is parsed sequentially, which also
+        // stops at the first token that doesn't start a method.
+        parser = new Parser(tokens, position);
+        Ast declaration;
+        while ((declaration = parser.parseDeclaration(false)) != null) {
+            result.add((Ast.Method) declaration);
+            sequential++;
+        }
+        return new Ast.Source(fields, result);
+    }
+
+    /**
+     * Returns the number of methods the last {@link #parseSource()} parsed
+     * sequentially, because the pre-scan didn't find where they start.
+     */
+    int getSequentialMethods() {
+        return sequential;
+    }
+
+    /**
+     * Returns the token indices of the {@code DEF}s outside of any
+     * {@code DO ... END} block from {@code start}, which must be the
+     * {@code DEF} of the first method.
+     */
+    private int[] scan(int start) {
+        int[] starts = new int[16];
+        int count = 0;
+        int depth = 0;
+        for (int i = start; i < tokens.size(); i++) {
+            switch (tokens.getKind(i)) {
+                case DEF:
+                    if (depth == 0) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                        }
+                        starts[count++] = i;
+                    }
+                    break;
+                case DO:
+                    depth++;
+                    break;
+                case END:
+                    depth = Math.max(0, depth - 1);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Parses the methods from {@code from} (inclusive) to {@code to}
+     * (exclusive), splitting the range in half until it is below
+     * {@link #THRESHOLD}. Each method's result, end position, or exception is
+     * stored at its index.
+     */
+    private final class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] starts;
+        private final Ast.Method[] methods;
+        private final int[] ends;
+        private final RuntimeException[] errors;
+        private final int from;
+        private final int to;
+
+        private ParseTask(int[] starts, Ast.Method[] methods, int[] ends, RuntimeException[] errors, int from, int to) {
+            this.starts = starts;
+            this.methods = methods;
+            this.ends = ends;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    Parser parser = new Parser(tokens, starts[i]);
+                    try {
+                        methods[i] = parser.parseMethod();
+                        ends[i] = parser.getPosition();
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(starts, methods, ends, errors, from, middle),
+                        new ParseTask(starts, methods, ends, errors, middle, to));
+            }
+        }
+
+    }
+
+}
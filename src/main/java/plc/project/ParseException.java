@@ -2,15 +2,27 @@ package plc.project;
 
 public final class ParseException extends RuntimeException {
 
-    private final int index;
+    private final long offset;
 
     public ParseException(String message, int index) {
+        this(message, (long) index);
+    }
+
+    public ParseException(String message, long offset) {
         super(message);
-        this.index = index;
+        this.offset = offset;
     }
 
+    /**
+     * Returns the index of the error in the input. Use {@link #getOffset()}
+     * for inputs over 2 GB, where this throws an {@link ArithmeticException}.
+     */
     public int getIndex() {
-        return index;
+        return Math.toIntExact(offset);
+    }
+
+    public long getOffset() {
+        return offset;
     }
 
 }
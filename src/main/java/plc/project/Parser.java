@@ -2,6 +2,7 @@ package plc.project;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -21,10 +22,75 @@ import java.util.Optional;
  */
 public final class Parser {
 
+    /**
+     * Binary operator precedences, from lowest to highest. {@link #PRECEDENCE}
+     * maps each {@link Token.Kind} to its level, or {@link #NONE} for kinds
+     * which aren't binary operators, so a new operator only needs a
+     * {@link Token.Kind} and an entry in the static block below.
+     */
+    private static final int NONE = 0, LOGICAL = 1, EQUALITY = 2, ADDITIVE = 3, MULTIPLICATIVE = 4;
+    private static final int[] PRECEDENCE = new int[Token.Kind.values().length];
+
+    static {
+        precedence(LOGICAL, Token.Kind.AND, Token.Kind.OR);
+        precedence(EQUALITY, Token.Kind.LESS, Token.Kind.LESS_EQUAL, Token.Kind.GREATER,
+                Token.Kind.GREATER_EQUAL, Token.Kind.EQUAL, Token.Kind.NOT_EQUAL);
+        precedence(ADDITIVE, Token.Kind.PLUS, Token.Kind.MINUS);
+        precedence(MULTIPLICATIVE, Token.Kind.STAR, Token.Kind.SLASH);
+    }
+
+    private static void precedence(int level, Token.Kind... kinds) {
+        for (Token.Kind kind : kinds) {
+            PRECEDENCE[kind.ordinal()] = level;
+        }
+    }
+
+    /**
+     * The nesting depth of statements and expressions after which the parser
+     * switches from recursive descent to an explicit stack (see
+     * {@link StackParser}), so deeply nested input can't overflow the Java
+     * stack. Normal programs never get this deep, so they stay on the faster
+     * recursive path.
+     */
+    static final int MAX_DEPTH = 256;
+
     private final TokenStream tokens;
+    private final int maxDepth;
+    private int depth = 0;
+    private List<ParseException> diagnostics = null;
 
     public Parser(List<Token> tokens) {
+        this(TokenBuffer.of(tokens));
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this(tokens, 0);
+    }
+
+    /**
+     * Creates a parser starting at the given token, which is used to re-parse
+     * part of a buffer (see {@link IncrementalParser}).
+     */
+    Parser(TokenBuffer tokens, int index) {
+        this(tokens, index, MAX_DEPTH);
+    }
+
+    /**
+     * Creates a parser which uses the explicit stack past {@code maxDepth}
+     * levels of nesting; {@code 0} parses every statement and expression
+     * with the explicit stack.
+     */
+    Parser(TokenBuffer tokens, int index, int maxDepth) {
         this.tokens = new TokenStream(tokens);
+        this.tokens.index = index;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Returns the index of the next token to be parsed.
+     */
+    int getPosition() {
+        return tokens.index;
     }
 
     /**
@@ -35,40 +101,173 @@ public final class Parser {
         List<Ast.Source.Field> fields = new ArrayList<>();
         List<Ast.Source.Method> methods = new ArrayList<>();
 
-        while (peek("LET"))
+        while (peek(Token.Kind.LET))
             fields.add(parseField());
-        while (peek("DEF"))
+        while (peek(Token.Kind.DEF))
             methods.add(parseMethod());
 
         return new Ast.Source(fields, methods);
     }
 
+    /**
+     * Parses the {@code source} rule, recovering from syntax errors instead of
+     * stopping at the first one. Each error is added to {@code diagnostics}
+     * in source order, the tokens up to the next {@code ;}, {@code END},
+     * {@code DEF} or {@code LET} are skipped (see {@link #synchronize(int)}),
+     * and parsing continues. Statements and declarations with errors are left
+     * out of the returned partial AST. A top-level token which doesn't start a
+     * declaration (including a field after a method) is an error too, where
+     * {@link #parseSource()} stops quietly. Skipped tokens are never parsed again,
+     * so the whole source is parsed in a single pass however many errors it
+     * has, and blocks nested past {@link #MAX_DEPTH} recover the same way.
+     */
+    public Ast.Source parseSource(List<ParseException> diagnostics) {
+        List<Ast.Source.Field> fields = new ArrayList<>();
+        List<Ast.Source.Method> methods = new ArrayList<>();
+        boolean fieldsAllowed = true;
+        this.diagnostics = diagnostics;
+        try {
+            while (true) {
+                int start = tokens.index;
+                try {
+                    if (fieldsAllowed && peek(Token.Kind.LET)) {
+                        fields.add(parseField());
+                    } else if (peek(Token.Kind.DEF)) {
+                        fieldsAllowed = false;
+                        methods.add(parseMethod());
+                    } else if (tokens.has(0)) {
+                        // Unlike parseSource(), which stops here, the rest of
+                        // the source is still parsed.
+                        throw new ParseException(peek(Token.Kind.LET) ? "Field after method" : "Expected DEF", tokens.getIndex(0));
+                    } else {
+                        break;
+                    }
+                } catch (ParseException e) {
+                    diagnostics.add(e);
+                    synchronize(start);
+                }
+            }
+        } finally {
+            this.diagnostics = null;
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Skips tokens after a syntax error up to the next synchronization point:
+     * just past a {@code ;} or a skipped {@code DO ... END} block, or before
+     * an {@code END}, {@code DEF} or {@code LET}. Tokens inside a skipped
+     * block don't count, except for {@code DEF}, which always starts a new
+     * method. At least
+     * one token is skipped if nothing has been parsed since {@code start}, so
+     * recovery always makes progress.
+     */
+    private void synchronize(int start) {
+        if (tokens.index == start && tokens.has(0))
+            tokens.advance();
+        int depth = 0;
+        for (; tokens.has(0); tokens.advance()) {
+            switch (tokens.getKind(0)) {
+                case DEF:
+                    return;
+                case LET:
+                    if (depth == 0)
+                        return;
+                    break;
+                case SEMICOLON:
+                    if (depth == 0) {
+                        tokens.advance();
+                        return;
+                    }
+                    break;
+                case DO:
+                    depth++;
+                    break;
+                case END:
+                    if (depth == 0)
+                        return;
+                    if (--depth == 0) {
+                        tokens.advance();
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the current block (ending at {@code END}, or also at
+     * {@code ELSE} if {@code orElse} is true) has another statement. When
+     * recovering from errors the block also ends at {@code DEF} or the end of
+     * the input, since its {@code END} must be missing.
+     */
+    private boolean hasStatement(boolean orElse) {
+        Token.Kind kind = tokens.getKind(0);
+        if (kind == Token.Kind.END || orElse && kind == Token.Kind.ELSE)
+            return false;
+        return diagnostics == null || tokens.has(0) && kind != Token.Kind.DEF;
+    }
+
+    /**
+     * Parses a statement of a block into {@code stmts}. When recovering from
+     * errors, a statement with an error is recorded and skipped instead.
+     */
+    private void parseBlockStatement(List<Ast.Stmt> stmts) throws ParseException {
+        if (diagnostics == null) {
+            stmts.add(parseStatement());
+            return;
+        }
+        int start = tokens.index;
+        try {
+            stmts.add(parseStatement());
+        } catch (ParseException e) {
+            diagnostics.add(e);
+            synchronize(start);
+        }
+    }
+
+    /**
+     * Parses the next top-level declaration of the {@code source} rule if the
+     * next tokens start one, returning {@code null} otherwise. Fields are
+     * only allowed if {@code fields} is true, since they must come before all
+     * methods.
+     */
+    Ast parseDeclaration(boolean fields) throws ParseException {
+        if (fields && peek(Token.Kind.LET))
+            return parseField();
+        else if (peek(Token.Kind.DEF))
+            return parseMethod();
+        return null;
+    }
+
     /**
      * Parses the {@code field} rule. This method should only be called if the
      * next tokens start a field, aka {@code LET}.
      */
     public Ast.Field parseField() throws ParseException {
         // 'LET' identifier ':' identifier ('=' expression)? ';'
-        match("LET");
+        match(Token.Kind.LET);
 
         if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex());
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1));
+        String name = tokens.getLiteral(-1);
 
-        if (!match(":"))
-            throw new ParseException("Missing Colon", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.COLON))
+            throw new ParseException("Missing Colon", tokens.getIndex(-1));
 
         if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Missing Second Identifier", tokens.get(-1).getIndex());
-        String type = tokens.get(-1).getLiteral();
+            throw new ParseException("Missing Second Identifier", tokens.getIndex(-1));
+        String type = tokens.getLiteral(-1);
 
         Optional<Ast.Expr> expr = Optional.empty();
-        if (match("=")) {
+        if (match(Token.Kind.ASSIGN)) {
             expr = Optional.of(parseExpression());
         }
 
-        if (!match(";"))
-            throw new ParseException("Missing Semicolon", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.SEMICOLON))
+            throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
 
         return new Ast.Field(name, type, expr);
 
@@ -83,51 +282,52 @@ public final class Parser {
         List<String> identifiers = new ArrayList<>();
         List<String> typeNames = new ArrayList<>();
         List<Ast.Stmt> stmts = new ArrayList<>();
-        match("DEF");
+        match(Token.Kind.DEF);
 
         if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex());
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1));
+        String name = tokens.getLiteral(-1);
 
-        if (!match("("))
-            throw new ParseException("Missing Opening Parenthesis", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.LEFT_PAREN))
+            throw new ParseException("Missing Opening Parenthesis", tokens.getIndex(-1));
 
         if (match(Token.Type.IDENTIFIER)) {
-            identifiers.add(tokens.get(-1).getLiteral());
-            if (!match(":"))
-                throw new ParseException("Missing Colon", tokens.get(-1).getIndex());
+            identifiers.add(tokens.getLiteral(-1));
+            if (!match(Token.Kind.COLON))
+                throw new ParseException("Missing Colon", tokens.getIndex(-1));
             if (!match(Token.Type.IDENTIFIER))
-                throw new ParseException("Missing Type Identifier", tokens.get(-1).getIndex());
-            typeNames.add(tokens.get(-1).getLiteral());
-            if (match(",")) {
-                while (match(",")) {
-                    if (!match(Token.Type.IDENTIFIER))
-                        throw new ParseException("Missing Identifier", tokens.get(-1).getIndex());
-                    identifiers.add(tokens.get(-1).getLiteral());
-                    if (!match(":"))
-                        throw new ParseException("Missing Colon", tokens.get(-1).getIndex());
-                    if (!match(Token.Type.IDENTIFIER))
-                        throw new ParseException("Missing Type Identifier", tokens.get(-1).getIndex());
-                    typeNames.add(tokens.get(-1).getLiteral());
-                }
+                throw new ParseException("Missing Type Identifier", tokens.getIndex(-1));
+            typeNames.add(tokens.getLiteral(-1));
+            while (match(Token.Kind.COMMA)) {
+                if (!match(Token.Type.IDENTIFIER))
+                    throw new ParseException("Missing Identifier", tokens.getIndex(-1));
+                identifiers.add(tokens.getLiteral(-1));
+                if (!match(Token.Kind.COLON))
+                    throw new ParseException("Missing Colon", tokens.getIndex(-1));
+                if (!match(Token.Type.IDENTIFIER))
+                    throw new ParseException("Missing Type Identifier", tokens.getIndex(-1));
+                typeNames.add(tokens.getLiteral(-1));
             }
         }
 
-        if (!match(")"))
-            throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.RIGHT_PAREN))
+            throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
 
         Optional<String> returnType = Optional.empty();
-        if (match(":")) {
+        if (match(Token.Kind.COLON)) {
             if (!match(Token.Type.IDENTIFIER))
-                throw new ParseException("Missing Type Identifier", tokens.get(-1).getIndex());
-            returnType = Optional.of(tokens.get(-1).getLiteral());
+                throw new ParseException("Missing Type Identifier", tokens.getIndex(-1));
+            returnType = Optional.of(tokens.getLiteral(-1));
         }
 
-        if (!match("DO"))
-            throw new ParseException("Missing DO", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.DO))
+            throw new ParseException("Missing DO", tokens.getIndex(-1));
 
-        while (!peek("END"))
-            stmts.add(parseStatement());
+        while (hasStatement(false))
+            parseBlockStatement(stmts);
+
+        if (!match(Token.Kind.END))
+            throw new ParseException("Missing END", tokens.getIndex(-1));
 
         return new Ast.Method(name, identifiers, typeNames, returnType, stmts);
 
@@ -139,33 +339,40 @@ public final class Parser {
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Stmt parseStatement() throws ParseException {
-        if (peek("LET")) {
-            return parseDeclarationStatement();
-        }
-        else if (peek("IF")) {
-            return parseIfStatement();
+        if (depth >= maxDepth)
+            return new StackParser().parseStatement();
+        depth++;
+        try {
+            return parseStatementRule();
+        } finally {
+            depth--;
         }
-        else if (peek("FOR")) {
-            return parseForStatement();
-        }
-        else if (peek("WHILE")) {
-            return parseWhileStatement();
-        }
-        else if (peek("RETURN")) {
-            return parseReturnStatement();
-        }
-        else {
-            Ast.Stmt.Expr expr1 = parseExpression();
-            if (match("=")) {
-                Ast.Stmt.Expr expr2 = parseExpression();
-                if (!match(";"))
-                    throw new ParseException("Missing Semicolon", tokens.get(-1).getIndex());
-                return new Ast.Stmt.Assignment(expr1, expr2);
-            }
-            if (!match(";"))
-                throw new ParseException("Missing Semicolon", tokens.get(-1).getIndex());
+    }
+
+    private Ast.Stmt parseStatementRule() throws ParseException {
+        switch (tokens.getKind(0)) {
+            case LET:
+                return parseDeclarationStatement();
+            case IF:
+                return parseIfStatement();
+            case FOR:
+                return parseForStatement();
+            case WHILE:
+                return parseWhileStatement();
+            case RETURN:
+                return parseReturnStatement();
+            default:
+                Ast.Stmt.Expr expr1 = parseExpression();
+                if (match(Token.Kind.ASSIGN)) {
+                    Ast.Stmt.Expr expr2 = parseExpression();
+                    if (!match(Token.Kind.SEMICOLON))
+                        throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
+                    return new Ast.Stmt.Assignment(expr1, expr2);
+                }
+                if (!match(Token.Kind.SEMICOLON))
+                    throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
 
-            return new Ast.Stmt.Expression(expr1);
+                return new Ast.Stmt.Expression(expr1);
         }
     }
 
@@ -176,26 +383,26 @@ public final class Parser {
      */
     public Ast.Stmt.Declaration parseDeclarationStatement() throws ParseException {
         // 'LET' identifier (':' identifier)? ('=' expression)? ';'
-        match("LET");
+        match(Token.Kind.LET);
         if (!match(Token.Type.IDENTIFIER)) {
-            throw new ParseException("Expected Identifier.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected Identifier.", tokens.getIndex(-1));
         }
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
 
         Optional<String> typeName = Optional.empty();
-        if (match(":")) {
+        if (match(Token.Kind.COLON)) {
             if (!match(Token.Type.IDENTIFIER))
-                throw new ParseException("Expected Token Identifier.", tokens.get(-1).getIndex());
-            typeName = Optional.of(tokens.get(-1).getLiteral());
+                throw new ParseException("Expected Token Identifier.", tokens.getIndex(-1));
+            typeName = Optional.of(tokens.getLiteral(-1));
         }
 
         Optional<Ast.Expr> expr = Optional.empty();
-        if (match("=")) {
+        if (match(Token.Kind.ASSIGN)) {
             expr = Optional.of(parseExpression());
         }
 
-        if (!match(";")) {
-            throw new ParseException("Expected semicolon.", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.SEMICOLON)) {
+            throw new ParseException("Expected semicolon.", tokens.getIndex(-1));
         }
 
         return new Ast.Stmt.Declaration(name, typeName, expr);
@@ -208,24 +415,24 @@ public final class Parser {
      */
     public Ast.Stmt.If parseIfStatement() throws ParseException {
         // 'IF' expression 'DO' statement* ('ELSE' statement*)? 'END'
-        match("IF");
+        match(Token.Kind.IF);
         Ast.Expr expr = parseExpression();
-        if (!match("DO"))
-            throw new ParseException("Missing DO String", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.DO))
+            throw new ParseException("Missing DO String", tokens.getIndex(-1));
 
         List<Ast.Stmt> thenStmts = new ArrayList<>();
-        while (!peek("ELSE") && !peek("END")) {
-            thenStmts.add(parseStatement());
+        while (hasStatement(true)) {
+            parseBlockStatement(thenStmts);
         }
         List<Ast.Stmt> elseStmts = new ArrayList<>();
-        if (match("ELSE")) {
-            while (!peek("END")) {
-                elseStmts.add(parseStatement());
+        if (match(Token.Kind.ELSE)) {
+            while (hasStatement(false)) {
+                parseBlockStatement(elseStmts);
             }
         }
 
-        if (!match("END"))
-            throw new ParseException("Missing END", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.END))
+            throw new ParseException("Missing END", tokens.getIndex(-1));
 
         return new Ast.Stmt.If(expr, thenStmts, elseStmts);
     }
@@ -237,24 +444,24 @@ public final class Parser {
      */
     public Ast.Stmt.For parseForStatement() throws ParseException {
         // 'FOR' identifier 'IN' expression 'DO' statement* 'END'
-        match("FOR");
+        match(Token.Kind.FOR);
         if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex());
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1));
+        String name = tokens.getLiteral(-1);
 
-        if (!match("IN"))
-            throw new ParseException("Missing IN", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.IN))
+            throw new ParseException("Missing IN", tokens.getIndex(-1));
         Ast.Stmt.Expr expr = parseExpression();
 
-        if (!match("DO"))
-            throw new ParseException("Missing DO", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.DO))
+            throw new ParseException("Missing DO", tokens.getIndex(-1));
 
         List<Ast.Stmt> stmts = new ArrayList<>();
-        while (!peek("END"))
-            stmts.add(parseStatement());
+        while (hasStatement(false))
+            parseBlockStatement(stmts);
 
-        if (!match("END"))
-            throw new ParseException("Missing END", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.END))
+            throw new ParseException("Missing END", tokens.getIndex(-1));
 
         return new Ast.Stmt.For(name, expr, stmts);
 
@@ -267,19 +474,19 @@ public final class Parser {
      */
     public Ast.Stmt.While parseWhileStatement() throws ParseException {
         // 'WHILE' expression 'DO' statement* 'END'
-        match("WHILE");
+        match(Token.Kind.WHILE);
         Ast.Stmt.Expr expr = parseExpression();
 
-        if (!match("DO"))
-            throw new ParseException("Missing DO", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.DO))
+            throw new ParseException("Missing DO", tokens.getIndex(-1));
 
         List<Ast.Stmt> stmts = new ArrayList<>();
-        while (!peek("END")) {
-            stmts.add(parseStatement());
+        while (hasStatement(false)) {
+            parseBlockStatement(stmts);
         }
 
-        if (!match("END"))
-            throw new ParseException("Missing END", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.END))
+            throw new ParseException("Missing END", tokens.getIndex(-1));
 
         return new Ast.Stmt.While(expr, stmts);
     }
@@ -290,12 +497,12 @@ public final class Parser {
      * {@code RETURN}.
      */
     public Ast.Stmt.Return parseReturnStatement() throws ParseException {
-        match("RETURN");
+        match(Token.Kind.RETURN);
 
         Ast.Stmt.Expr expr = parseExpression();
 
-        if (!match(";"))
-            throw new ParseException("Missing Semicolon", tokens.get(-1).getIndex());
+        if (!match(Token.Kind.SEMICOLON))
+            throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
 
         return new Ast.Stmt.Return(expr);
     }
@@ -304,96 +511,69 @@ public final class Parser {
      * Parses the {@code expression} rule.
      */
     public Ast.Expr parseExpression() throws ParseException {
-        return parseLogicalExpression();
+        if (depth >= maxDepth)
+            return new StackParser().parseExpression();
+        depth++;
+        try {
+            return parseBinaryExpression(LOGICAL);
+        } finally {
+            depth--;
+        }
     }
 
     /**
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expr parseLogicalExpression() throws ParseException {
-        Ast.Expr left = parseEqualityExpression();
-        String operator;
-        if (match("AND")) {
-            operator = "AND";
-            return new Ast.Expr.Binary(operator, left, parseEqualityExpression());
-        }
-        else if (match("OR")){
-            operator = "OR";
-            return new Ast.Expr.Binary(operator, left, parseEqualityExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(LOGICAL);
     }
 
     /**
      * Parses the {@code equality-expression} rule.
      */
     public Ast.Expr parseEqualityExpression() throws ParseException {
-        Ast.Expr left = parseAdditiveExpression();
-        String operator;
-        if (match("<=")) {
-            operator = "<=";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-        else if (match(">=")) {
-            operator = ">=";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-        else if (match("==")) {
-            operator = "==";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-        else if (match("!=")) {
-            operator = "!=";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-        else if (match("<")) {
-            operator = "<";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-        else if (match(">")) {
-            operator = ">";
-            return new Ast.Expr.Binary(operator, left, parseAdditiveExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(EQUALITY);
     }
 
     /**
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expr parseAdditiveExpression() throws ParseException {
-        Ast.Expr left = parseMultiplicativeExpression();
-        String operator;
-        if (match("+")) {
-            operator = "+";
-            return new Ast.Expr.Binary(operator, left, parseMultiplicativeExpression());
-        }
-        else if (match("-")) {
-            operator = "-";
-            return new Ast.Expr.Binary(operator, left, parseMultiplicativeExpression());
-        }
-
-        return left;
+        return parseBinaryExpression(ADDITIVE);
     }
 
     /**
      * Parses the {@code multiplicative-expression} rule.
      */
     public Ast.Expr parseMultiplicativeExpression() throws ParseException {
+        return parseBinaryExpression(MULTIPLICATIVE);
+    }
+
+    /**
+     * Parses a chain of binary operators with precedence at least
+     * {@code precedence} by precedence climbing, instead of one method per
+     * level of the grammar. The right operand of each operator only takes
+     * operators of strictly higher precedence, so chains of the same level
+     * are left-associative ({@code a - b - c} is {@code (a - b) - c}).
+     */
+    private Ast.Expr parseBinaryExpression(int precedence) throws ParseException {
         Ast.Expr left = parseSecondaryExpression();
-        String operator;
-        if (match("*")) {
-            operator = "*";
-            return new Ast.Expr.Binary(operator, left, parseSecondaryExpression());
-        }
-        else if (match("/")) {
-            operator = "/";
-            return new Ast.Expr.Binary(operator, left, parseSecondaryExpression());
+        int next;
+        while ((next = PRECEDENCE[tokens.getKind(0).ordinal()]) >= precedence) {
+            String operator = advanceOperator();
+            left = new Ast.Expr.Binary(operator, left, parseBinaryExpression(next + 1));
         }
-
         return left;
+    }
 
+    /**
+     * Advances past the current operator token, returning its (shared)
+     * literal from {@link Token.Kind#getLiteral()}.
+     */
+    private String advanceOperator() {
+        String operator = tokens.getKind(0).getLiteral();
+        tokens.advance();
+        return operator;
     }
 
     /**
@@ -402,37 +582,28 @@ public final class Parser {
     public Ast.Expr parseSecondaryExpression() throws ParseException {
         Ast.Expr expr = parsePrimaryExpression();
         List<Ast.Expr> exprList = new ArrayList<>();
-        while (match(".")) {
+        while (match(Token.Kind.DOT)) {
             if (!match(Token.Type.IDENTIFIER)) {
-                throw new ParseException("Identifier missing", tokens.get(-1).getIndex());
+                throw new ParseException("Identifier missing", tokens.getIndex(-1));
             }
             else {
-                String name = tokens.get(-1).getLiteral();
-                if (match("(")) {
-                    boolean hasMore;
-                    if (!match(")"))
-                        hasMore = true;
-                    else
+                String name = tokens.getLiteral(-1);
+                if (match(Token.Kind.LEFT_PAREN)) {
+                    if (match(Token.Kind.RIGHT_PAREN))
                         return new Ast.Expr.Function(Optional.of(expr), name, exprList);
-                    while (hasMore) {
+                    exprList.add(parseExpression());
+                    while (match(Token.Kind.COMMA)) {
+                        if (match(Token.Kind.RIGHT_PAREN))
+                            throw new ParseException("Trailing Comma", tokens.getIndex(-1));
                         exprList.add(parseExpression());
-                        if (match(",")) {
-                            if (match(")"))
-                                throw new ParseException("Trailing Comma", tokens.get(-1).getIndex());
-                            exprList.add(parseExpression());
-                        }
-                        else {
-                            hasMore = false;
-                            if (!match(")"))
-                                throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex());
-                            return new Ast.Expr.Function(Optional.of(expr), name, exprList);
-                        }
                     }
+                    if (!match(Token.Kind.RIGHT_PAREN))
+                        throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+                    return new Ast.Expr.Function(Optional.of(expr), name, exprList);
                 }
                 else {
                     return new Ast.Expr.Access(Optional.of(expr), name);
                 }
-                return new Ast.Expr.Access(Optional.empty(), name);
             }
         }
         return expr;
@@ -445,25 +616,67 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expr parsePrimaryExpression() throws ParseException {
-        if (match("NIL")) {
+        Ast.Expr.Literal literal = parseLiteral();
+        if (literal != null) {
+            return literal;
+        }
+        else if (match(Token.Kind.LEFT_PAREN)) {
+            Ast.Expr expr = parseExpression();
+            if (!match(Token.Kind.RIGHT_PAREN))
+                throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+            return new Ast.Expr.Group(expr);
+        }
+        else if (match(Token.Type.IDENTIFIER)) {
+            String name = tokens.getLiteral(-1);
+            List<Ast.Expr> exprList = new ArrayList<>();
+            if (match(Token.Kind.LEFT_PAREN)) {
+                boolean hasMore;
+                if (!match(Token.Kind.RIGHT_PAREN))
+                    hasMore = true;
+                else
+                    return new Ast.Expr.Function(Optional.empty(), name, exprList);
+                while (hasMore) {
+                    exprList.add(parseExpression());
+                    while (match(Token.Kind.COMMA)) {
+                        exprList.add(parseExpression());
+                    }
+                    hasMore = false;
+                    if (!match(Token.Kind.RIGHT_PAREN))
+                        throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+                    return new Ast.Expr.Function(Optional.empty(), name, exprList);
+                }
+            }
+            return new Ast.Expr.Access(Optional.empty(), name);
+        }
+        else {
+            throw new ParseException("Unexpected Primary Expression", tokens.getIndex(-1));
+        }
+    }
+
+    /**
+     * Parses a literal of the {@code primary-expression} rule, returning
+     * {@code null} (without advancing) if the next token isn't one.
+     */
+    private Ast.Expr.Literal parseLiteral() {
+        if (match(Token.Kind.NIL)) {
             return new Ast.Expr.Literal(null);
         }
-        else if (match("TRUE")) {
+        else if (match(Token.Kind.TRUE)) {
             return new Ast.Expr.Literal(true);
         }
-        else if (match("FALSE")) {
+        else if (match(Token.Kind.FALSE)) {
             return new Ast.Expr.Literal(false);
         }
         else if (match(Token.Type.INTEGER)) {
-            String x = tokens.get(-1).getLiteral();
+            String x = tokens.getLiteral(-1);
             return new Ast.Expr.Literal(new BigInteger(x));
         }
         else if (match(Token.Type.DECIMAL)) {
-            String x = tokens.get(-1).getLiteral();
+            String x = tokens.getLiteral(-1);
             return new Ast.Expr.Literal(new BigDecimal(x));
         }
         else if (match(Token.Type.CHARACTER)) {
-            String x = tokens.get(-1).getLiteral();
+            String x = tokens.getLiteral(-1);
             x = x.replace("\'", "");
             if (x.contains("\\b"))
                 x = x.replace("\\b", "\b");
@@ -483,7 +696,7 @@ public final class Parser {
             return new Ast.Expr.Literal(y);
         }
         else if (match(Token.Type.STRING)) {
-            String x = tokens.get(-1).getLiteral();
+            String x = tokens.getLiteral(-1);
             x = x.substring(1, x.length() - 1);
             if (x.contains("\\b"))
                 x = x.replace("\\b", "\b");
@@ -501,37 +714,7 @@ public final class Parser {
                 x = x.replace("\\\\", "\\");
             return new Ast.Expr.Literal(x);
         }
-        else if (match("(")) {
-            Ast.Expr expr = parseExpression();
-            if (!match(")"))
-                throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex());
-            return new Ast.Expr.Group(expr);
-        }
-        else if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
-            List<Ast.Expr> exprList = new ArrayList<>();
-            if (match("(")) {
-                boolean hasMore;
-                if (!match(")"))
-                    hasMore = true;
-                else
-                    return new Ast.Expr.Function(Optional.empty(), name, exprList);
-                while (hasMore) {
-                    exprList.add(parseExpression());
-                    while (match(",")) {
-                        exprList.add(parseExpression());
-                    }
-                    hasMore = false;
-                    if (!match(")"))
-                        throw new ParseException("Missing Closing Parenthesis", tokens.get(-1).getIndex());
-                    return new Ast.Expr.Function(Optional.empty(), name, exprList);
-                }
-            }
-            return new Ast.Expr.Access(Optional.empty(), name);
-        }
-        else {
-            throw new ParseException("Unexpected Primary Expression", tokens.get(-1).getIndex());
-        }
+        return null;
     }
 
     /**
@@ -542,18 +725,24 @@ public final class Parser {
      * literal is the same.
      *
      * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
-     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
+     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}. A
+     * pattern may also be a {@link Token.Kind}, which matches keywords and
+     * operators without comparing literals.
      */
     private boolean peek(Object... patterns) {
         for (int i = 0; i < patterns.length; i++) {
             if (!tokens.has(i)) {
                 return false;
             } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
+                if (patterns[i] != tokens.getType(i)) {
+                    return false;
+                }
+            } else if (patterns[i] instanceof Token.Kind) {
+                if (patterns[i] != tokens.getKind(i)) {
                     return false;
                 }
             } else if (patterns[i] instanceof String) {
-                if (!patterns[i].equals(tokens.get(i).getLiteral())) {
+                if (!tokens.literalEquals(i, (String) patterns[i])) {
                     return false;
                 }
             } else {
@@ -563,6 +752,27 @@ public final class Parser {
         return true;
     }
 
+    /**
+     * Returns {@code true} if the next token is of the given kind; this is the
+     * allocation free form of {@code peek(kind)} used for keywords and
+     * operators.
+     */
+    private boolean peek(Token.Kind kind) {
+        return tokens.getKind(0) == kind;
+    }
+
+    /**
+     * As {@link #peek(Token.Kind)}, but also advances the token stream if the
+     * next token is of the given kind.
+     */
+    private boolean match(Token.Kind kind) {
+        boolean peek = peek(kind);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
+
     /**
      * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
      * and advances the token stream.
@@ -578,12 +788,506 @@ public final class Parser {
         return peek;
     }
 
+    /**
+     * An explicit-stack version of the statement and expression rules, used
+     * past {@link #MAX_DEPTH} levels of nesting. Each rule is a {@link Frame}
+     * holding the state of one call of the corresponding recursive method,
+     * and nested rules are pushed onto a heap-allocated stack rather than
+     * called, so the nesting depth is only limited by the heap. The frames
+     * produce the same trees and exceptions as the recursive methods, and
+     * recover from errors in the statements of their blocks the same way
+     * (see {@link #recover(ParseException)}).
+     */
+    private final class StackParser {
+
+        /**
+         * The result of a statement which was skipped after an error.
+         */
+        private final Object skipped = new Object();
+
+        private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+        private Object result;
+
+        Ast.Stmt parseStatement() throws ParseException {
+            return (Ast.Stmt) parse(statement());
+        }
+
+        Ast.Expr parseExpression() throws ParseException {
+            return (Ast.Expr) parse(new ExpressionFrame(LOGICAL));
+        }
+
+        /**
+         * Runs frames until {@code root} returns. Each step either calls a
+         * nested rule, which pushes its frame, or returns a value, which pops
+         * the frame and passes the value to the frame below on its next step.
+         */
+        private Object parse(Frame root) throws ParseException {
+            stack.push(root);
+            while (true) {
+                Object value = result;
+                result = null;
+                try {
+                    stack.peek().step(value);
+                } catch (ParseException e) {
+                    recover(e);
+                }
+                if (stack.isEmpty())
+                    return result;
+            }
+        }
+
+        /**
+         * Handles an exception of the frame on top as
+         * {@link Parser#parseBlockStatement(List)} does: when recovering from
+         * errors, the frames up to the innermost block parsing a statement
+         * are dropped, the exception is recorded, and the statement is
+         * skipped. Otherwise, or if there is no such block, it is rethrown
+         * (to the recursive rule which started this parser).
+         */
+        private void recover(ParseException e) throws ParseException {
+            if (diagnostics == null)
+                throw e;
+            stack.pop();
+            while (!stack.isEmpty() && !(stack.peek() instanceof BlockFrame && ((BlockFrame) stack.peek()).start >= 0))
+                stack.pop();
+            if (stack.isEmpty())
+                throw e;
+            BlockFrame block = (BlockFrame) stack.peek();
+            diagnostics.add(e);
+            synchronize(block.start);
+            block.start = -1;
+            result = skipped;
+        }
+
+        private void call(Frame frame) {
+            stack.push(frame);
+        }
+
+        private void ret(Object value) {
+            stack.pop();
+            result = value;
+        }
+
+        /**
+         * Returns the frame for the {@code statement} rule starting at the
+         * next token, as in {@link Parser#parseStatement()}.
+         */
+        private Frame statement() {
+            switch (tokens.getKind(0)) {
+                case LET:
+                    return new DeclarationFrame();
+                case IF:
+                    return new IfFrame();
+                case FOR:
+                    return new ForFrame();
+                case WHILE:
+                    return new WhileFrame();
+                case RETURN:
+                    return new ReturnFrame();
+                default:
+                    return new ExpressionStatementFrame();
+            }
+        }
+
+        /**
+         * The state of one call of a rule. {@link #step(Object)} is called
+         * with {@code null} when the frame is first run, and afterwards with
+         * the value returned by the rule it called.
+         */
+        private abstract class Frame {
+
+            int state = 0;
+
+            abstract void step(Object value) throws ParseException;
+
+        }
+
+        /**
+         * A frame with blocks of statements.
+         */
+        private abstract class BlockFrame extends Frame {
+
+            /**
+             * The index of the first token of the statement being parsed, or
+             * {@code -1} if none is.
+             */
+            int start = -1;
+
+            void callStatement() {
+                start = tokens.index;
+                call(statement());
+            }
+
+            /**
+             * Adds the statement returned by {@link #callStatement()} to the
+             * block, unless it was skipped.
+             */
+            void add(List<Ast.Stmt> stmts, Object value) {
+                start = -1;
+                if (value != skipped)
+                    stmts.add((Ast.Stmt) value);
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseStatement()}.
+         */
+        private final class ExpressionStatementFrame extends Frame {
+
+            private Ast.Expr receiver;
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state++) {
+                    case 0:
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    case 1:
+                        receiver = (Ast.Expr) value;
+                        if (match(Token.Kind.ASSIGN)) {
+                            call(new ExpressionFrame(LOGICAL));
+                            return;
+                        }
+                        if (!match(Token.Kind.SEMICOLON))
+                            throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
+                        ret(new Ast.Stmt.Expression(receiver));
+                        return;
+                    default:
+                        if (!match(Token.Kind.SEMICOLON))
+                            throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
+                        ret(new Ast.Stmt.Assignment(receiver, (Ast.Expr) value));
+                }
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseDeclarationStatement()}.
+         */
+        private final class DeclarationFrame extends Frame {
+
+            private String name;
+            private Optional<String> typeName = Optional.empty();
+
+            @Override
+            void step(Object value) throws ParseException {
+                if (state++ == 0) {
+                    match(Token.Kind.LET);
+                    if (!match(Token.Type.IDENTIFIER))
+                        throw new ParseException("Expected Identifier.", tokens.getIndex(-1));
+                    name = tokens.getLiteral(-1);
+                    if (match(Token.Kind.COLON)) {
+                        if (!match(Token.Type.IDENTIFIER))
+                            throw new ParseException("Expected Token Identifier.", tokens.getIndex(-1));
+                        typeName = Optional.of(tokens.getLiteral(-1));
+                    }
+                    if (match(Token.Kind.ASSIGN)) {
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    }
+                }
+                if (!match(Token.Kind.SEMICOLON))
+                    throw new ParseException("Expected semicolon.", tokens.getIndex(-1));
+                ret(new Ast.Stmt.Declaration(name, typeName, Optional.ofNullable((Ast.Expr) value)));
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseIfStatement()}.
+         */
+        private final class IfFrame extends BlockFrame {
+
+            private Ast.Expr condition;
+            private final List<Ast.Stmt> thenStmts = new ArrayList<>();
+            private final List<Ast.Stmt> elseStmts = new ArrayList<>();
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state) {
+                    case 0:
+                        match(Token.Kind.IF);
+                        state = 1;
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    case 1:
+                        condition = (Ast.Expr) value;
+                        if (!match(Token.Kind.DO))
+                            throw new ParseException("Missing DO String", tokens.getIndex(-1));
+                        state = 2;
+                        break;
+                    case 2:
+                        add(thenStmts, value);
+                        break;
+                    default:
+                        add(elseStmts, value);
+                        break;
+                }
+                if (state == 2) {
+                    if (hasStatement(true)) {
+                        callStatement();
+                        return;
+                    }
+                    if (match(Token.Kind.ELSE))
+                        state = 3;
+                }
+                if (state == 3 && hasStatement(false)) {
+                    callStatement();
+                    return;
+                }
+                if (!match(Token.Kind.END))
+                    throw new ParseException("Missing END", tokens.getIndex(-1));
+                ret(new Ast.Stmt.If(condition, thenStmts, elseStmts));
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseForStatement()}.
+         */
+        private final class ForFrame extends BlockFrame {
+
+            private String name;
+            private Ast.Expr expr;
+            private final List<Ast.Stmt> stmts = new ArrayList<>();
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state) {
+                    case 0:
+                        match(Token.Kind.FOR);
+                        if (!match(Token.Type.IDENTIFIER))
+                            throw new ParseException("Missing Identifier", tokens.getIndex(-1));
+                        name = tokens.getLiteral(-1);
+                        if (!match(Token.Kind.IN))
+                            throw new ParseException("Missing IN", tokens.getIndex(-1));
+                        state = 1;
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    case 1:
+                        expr = (Ast.Expr) value;
+                        if (!match(Token.Kind.DO))
+                            throw new ParseException("Missing DO", tokens.getIndex(-1));
+                        state = 2;
+                        break;
+                    default:
+                        add(stmts, value);
+                        break;
+                }
+                if (hasStatement(false)) {
+                    callStatement();
+                    return;
+                }
+                if (!match(Token.Kind.END))
+                    throw new ParseException("Missing END", tokens.getIndex(-1));
+                ret(new Ast.Stmt.For(name, expr, stmts));
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseWhileStatement()}.
+         */
+        private final class WhileFrame extends BlockFrame {
+
+            private Ast.Expr condition;
+            private final List<Ast.Stmt> stmts = new ArrayList<>();
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state) {
+                    case 0:
+                        match(Token.Kind.WHILE);
+                        state = 1;
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    case 1:
+                        condition = (Ast.Expr) value;
+                        if (!match(Token.Kind.DO))
+                            throw new ParseException("Missing DO", tokens.getIndex(-1));
+                        state = 2;
+                        break;
+                    default:
+                        add(stmts, value);
+                        break;
+                }
+                if (hasStatement(false)) {
+                    callStatement();
+                    return;
+                }
+                if (!match(Token.Kind.END))
+                    throw new ParseException("Missing END", tokens.getIndex(-1));
+                ret(new Ast.Stmt.While(condition, stmts));
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseReturnStatement()}.
+         */
+        private final class ReturnFrame extends Frame {
+
+            @Override
+            void step(Object value) throws ParseException {
+                if (state++ == 0) {
+                    match(Token.Kind.RETURN);
+                    call(new ExpressionFrame(LOGICAL));
+                    return;
+                }
+                if (!match(Token.Kind.SEMICOLON))
+                    throw new ParseException("Missing Semicolon", tokens.getIndex(-1));
+                ret(new Ast.Stmt.Return((Ast.Expr) value));
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseBinaryExpression(int)}.
+         */
+        private final class ExpressionFrame extends Frame {
+
+            private final int precedence;
+            private Ast.Expr left;
+            private String operator;
+
+            private ExpressionFrame(int precedence) {
+                this.precedence = precedence;
+            }
+
+            @Override
+            void step(Object value) throws ParseException {
+                if (state++ == 0) {
+                    call(new SecondaryFrame());
+                    return;
+                }
+                left = operator == null ? (Ast.Expr) value : new Ast.Expr.Binary(operator, left, (Ast.Expr) value);
+                int next = PRECEDENCE[tokens.getKind(0).ordinal()];
+                if (next >= precedence) {
+                    operator = advanceOperator();
+                    call(new ExpressionFrame(next + 1));
+                } else {
+                    ret(left);
+                }
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parseSecondaryExpression()}.
+         */
+        private final class SecondaryFrame extends Frame {
+
+            private Ast.Expr receiver;
+            private String name;
+            private final List<Ast.Expr> arguments = new ArrayList<>();
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state) {
+                    case 0:
+                        state = 1;
+                        call(new PrimaryFrame());
+                        return;
+                    case 1:
+                        receiver = (Ast.Expr) value;
+                        if (!match(Token.Kind.DOT)) {
+                            ret(receiver);
+                            return;
+                        }
+                        if (!match(Token.Type.IDENTIFIER))
+                            throw new ParseException("Identifier missing", tokens.getIndex(-1));
+                        name = tokens.getLiteral(-1);
+                        if (!match(Token.Kind.LEFT_PAREN)) {
+                            ret(new Ast.Expr.Access(Optional.of(receiver), name));
+                            return;
+                        }
+                        if (match(Token.Kind.RIGHT_PAREN)) {
+                            ret(new Ast.Expr.Function(Optional.of(receiver), name, arguments));
+                            return;
+                        }
+                        state = 2;
+                        call(new ExpressionFrame(LOGICAL));
+                        return;
+                    default:
+                        arguments.add((Ast.Expr) value);
+                        if (match(Token.Kind.COMMA)) {
+                            if (match(Token.Kind.RIGHT_PAREN))
+                                throw new ParseException("Trailing Comma", tokens.getIndex(-1));
+                            call(new ExpressionFrame(LOGICAL));
+                            return;
+                        }
+                        if (!match(Token.Kind.RIGHT_PAREN))
+                            throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+                        ret(new Ast.Expr.Function(Optional.of(receiver), name, arguments));
+                }
+            }
+
+        }
+
+        /**
+         * See {@link Parser#parsePrimaryExpression()}.
+         */
+        private final class PrimaryFrame extends Frame {
+
+            private String name;
+            private final List<Ast.Expr> arguments = new ArrayList<>();
+
+            @Override
+            void step(Object value) throws ParseException {
+                switch (state) {
+                    case 0:
+                        Ast.Expr.Literal literal = parseLiteral();
+                        if (literal != null) {
+                            ret(literal);
+                        } else if (match(Token.Kind.LEFT_PAREN)) {
+                            state = 1;
+                            call(new ExpressionFrame(LOGICAL));
+                        } else if (match(Token.Type.IDENTIFIER)) {
+                            name = tokens.getLiteral(-1);
+                            if (!match(Token.Kind.LEFT_PAREN)) {
+                                ret(new Ast.Expr.Access(Optional.empty(), name));
+                            } else if (match(Token.Kind.RIGHT_PAREN)) {
+                                ret(new Ast.Expr.Function(Optional.empty(), name, arguments));
+                            } else {
+                                state = 2;
+                                call(new ExpressionFrame(LOGICAL));
+                            }
+                        } else {
+                            throw new ParseException("Unexpected Primary Expression", tokens.getIndex(-1));
+                        }
+                        return;
+                    case 1:
+                        if (!match(Token.Kind.RIGHT_PAREN))
+                            throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+                        ret(new Ast.Expr.Group((Ast.Expr) value));
+                        return;
+                    default:
+                        arguments.add((Ast.Expr) value);
+                        if (match(Token.Kind.COMMA)) {
+                            call(new ExpressionFrame(LOGICAL));
+                            return;
+                        }
+                        if (!match(Token.Kind.RIGHT_PAREN))
+                            throw new ParseException("Missing Closing Parenthesis", tokens.getIndex(-1));
+                        ret(new Ast.Expr.Function(Optional.empty(), name, arguments));
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * The token stream reads the {@link TokenBuffer} directly, so no
+     * {@link Token} objects are created while parsing.
+     */
     private static final class TokenStream {
 
-        private final List<Token> tokens;
+        private final TokenBuffer tokens;
         private int index = 0;
 
-        private TokenStream(List<Token> tokens) {
+        private TokenStream(TokenBuffer tokens) {
             this.tokens = tokens;
         }
 
@@ -595,10 +1299,40 @@ public final class Parser {
         }
 
         /**
-         * Gets the token at index + offset.
+         * Gets the type of the token at index + offset.
+         */
+        public Token.Type getType(int offset) {
+            return tokens.getType(index + offset);
+        }
+
+        /**
+         * Gets the kind of the token at index + offset, or
+         * {@link Token.Kind#NONE} if there is no such token.
+         */
+        public Token.Kind getKind(int offset) {
+            return has(offset) ? tokens.getKind(index + offset) : Token.Kind.NONE;
+        }
+
+        /**
+         * Gets the literal of the token at index + offset.
+         */
+        public String getLiteral(int offset) {
+            return tokens.getLiteralString(index + offset);
+        }
+
+        /**
+         * Gets the source index of the token at index + offset.
+         */
+        public int getIndex(int offset) {
+            return tokens.getIndex(index + offset);
+        }
+
+        /**
+         * Returns true if the literal of the token at index + offset is equal
+         * to the given literal.
          */
-        public Token get(int offset) {
-            return tokens.get(index + offset);
+        public boolean literalEquals(int offset, String literal) {
+            return tokens.literalEquals(index + offset, literal);
         }
 
         /**
@@ -0,0 +1,215 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves every unqualified variable of a source to a lexical address, which
+ * the {@link FrameInterpreter} uses instead of looking names up in scopes.
+ *
+ * Methods do not nest, so there are only two frames: the frame of the running
+ * method ({@link #LOCAL}) and the globals ({@link #GLOBAL}). Each parameter and
+ * local variable gets a slot in its method's frame, with the parameters first.
+ * Variables of sibling blocks share slots, since they are never alive at the
+ * same time. Any other name (a field, or a variable of the interpreter's
+ * parent scope) gets an index in the globals, one per distinct name.
+ *
+ * This doesn't type check anything, and a name which isn't defined anywhere
+ * is still given a global index, failing only if it is evaluated.
+ */
+public final class Resolver extends Traversal {
+
+    public static final int LOCAL = 0;
+    public static final int GLOBAL = 1;
+
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private Block block = null;
+    private int next = 0;
+    private int size = 0;
+
+    /**
+     * Returns the global names, indexed by their slot.
+     */
+    public List<String> getGlobals() {
+        return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        visit(ast.getFields());
+        visit(ast.getMethods());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        ast.getValue().ifPresent(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        then(() -> {
+            next = 0;
+            size = 0;
+            push();
+            for (String parameter : ast.getParameters()) {
+                define(parameter);
+            }
+        });
+        visit(ast.getStatements());
+        then(() -> {
+            pop();
+            ast.setFrameSize(size);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        then(() -> ast.setSlot(define(ast.getName())));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        block(ast.getThenStatements());
+        block(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        then(() -> {
+            push();
+            ast.setSlot(define(ast.getName()));
+        });
+        visit(ast.getStatements());
+        then(this::pop);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        block(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            return null;
+        }
+        for (Block block = this.block; block != null; block = block.parent) {
+            Integer slot = block.slots.get(ast.getName());
+            if (slot != null) {
+                ast.setAddress(LOCAL, slot);
+                return null;
+            }
+        }
+        Integer slot = globals.get(ast.getName());
+        if (slot == null) {
+            slot = names.size();
+            globals.put(ast.getName(), slot);
+            names.add(ast.getName());
+        }
+        ast.setAddress(GLOBAL, slot);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        ast.getReceiver().ifPresent(this::visit);
+        visit(ast.getArguments());
+        return null;
+    }
+
+    /**
+     * Schedules the statements in a block of their own.
+     */
+    private void block(List<Ast.Stmt> statements) {
+        then(this::push);
+        visit(statements);
+        then(this::pop);
+    }
+
+    private void push() {
+        block = new Block(block, next);
+    }
+
+    /**
+     * Ends the current block, releasing its slots for the next block.
+     */
+    private void pop() {
+        next = block.start;
+        block = block.parent;
+    }
+
+    private int define(String name) {
+        if (block.slots.putIfAbsent(name, next) != null) {
+            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+        }
+        size = Math.max(size, next + 1);
+        return next++;
+    }
+
+    private static final class Block {
+
+        private final Block parent;
+        private final int start;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private Block(Block parent, int start) {
+            this.parent = parent;
+            this.start = start;
+        }
+
+    }
+
+}
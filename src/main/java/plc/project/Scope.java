@@ -1,6 +1,8 @@
 package plc.project;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,11 +11,29 @@ import java.util.function.Function;
 public final class Scope {
 
     private final Scope parent;
-    private final Map<String, Environment.Variable> variables = new HashMap<>();
-    private final Map<String, Environment.Function> functions = new HashMap<>();
+    private final Map<String, Environment.Variable> variables;
+    /**
+     * The functions of each name, indexed by arity (with {@code null} for the
+     * arities which aren't defined).
+     */
+    private final Map<String, Environment.Function[]> functions;
 
     public Scope(Scope parent) {
+        this(parent, new HashMap<>(), new HashMap<>());
+    }
+
+    private Scope(Scope parent, Map<String, Environment.Variable> variables, Map<String, Environment.Function[]> functions) {
         this.parent = parent;
+        this.variables = variables;
+        this.functions = functions;
+    }
+
+    /**
+     * Returns a scope without a parent in which nothing can be defined, so
+     * that it can be shared.
+     */
+    static Scope empty() {
+        return new Scope(null, Collections.emptyMap(), Collections.emptyMap());
     }
 
     public Scope getParent() {
@@ -53,23 +73,33 @@ public final class Scope {
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
-            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
+        int arity = parameterTypes.size();
+        Environment.Function[] overloads = functions.get(name);
+        if (overloads != null && arity < overloads.length && overloads[arity] != null) {
+            throw new RuntimeException("The function " + name + "/" + arity + " is already defined in this scope.");
         } else {
+            if (overloads == null || arity >= overloads.length) {
+                overloads = overloads == null ? new Environment.Function[arity + 1] : Arrays.copyOf(overloads, arity + 1);
+                functions.put(name, overloads);
+            }
             Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
-            functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
+            overloads[arity] = func;
             return func;
         }
     }
 
+    /**
+     * Looks up the function in this scope and then its parents. This doesn't
+     * allocate, since the functions are indexed by name and then by arity.
+     */
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Function[] overloads = scope.functions.get(name);
+            if (overloads != null && arity < overloads.length && overloads[arity] != null) {
+                return overloads[arity];
+            }
         }
+        throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
     }
 
     @Override
@@ -77,8 +107,20 @@ public final class Scope {
         return "Scope{" +
                 "parent=" + parent +
                 ", variables=" + variables.keySet() +
-                ", functions=" + functions.keySet() +
+                ", functions=" + functionKeys() +
                 '}';
     }
 
+    private List<String> functionKeys() {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Environment.Function[]> entry : functions.entrySet()) {
+            for (int arity = 0; arity < entry.getValue().length; arity++) {
+                if (entry.getValue()[arity] != null) {
+                    keys.add(entry.getKey() + "/" + arity);
+                }
+            }
+        }
+        return keys;
+    }
+
 }
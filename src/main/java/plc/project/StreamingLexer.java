@@ -0,0 +1,177 @@
+package plc.project;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lexer which reads its input incrementally from a {@link Reader} (or a
+ * {@link ReadableByteChannel}) and hands out tokens one at a time, instead of
+ * requiring the whole program as a {@link String} and building the full token
+ * list up front like {@link Lexer}.
+ *
+ * Characters are read into a fixed-size window. Once a token has been emitted
+ * the characters before it are discarded, so memory use is bounded by the
+ * buffer size (the window only grows if a single token is longer than it).
+ * Token indices are absolute offsets into the input, exactly as they would be
+ * with {@link Lexer}.
+ *
+ * Tokens are recognized with the same {@link LexerTable} DFA as {@link Lexer},
+ * and I/O failures are rethrown as {@link UncheckedIOException}.
+ */
+public final class StreamingLexer implements Iterator<Token>, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private char[] buffer;
+    private long offset = 0;
+    private int start = 0;
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private Token next = null;
+
+    public StreamingLexer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    public StreamingLexer(ReadableByteChannel channel, Charset charset) {
+        this(Channels.newReader(channel, charset.newDecoder(), DEFAULT_BUFFER_SIZE), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns true if there is another token, lexing it (and skipping any
+     * whitespace before it) if needed.
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            // The whitespace is skipped as it is read, so that filling the
+            // buffer drops it.
+            start = position;
+            while (has() && LexerTable.isWhitespace(buffer[position])) {
+                start = ++position;
+            }
+            if (!has()) {
+                return false;
+            }
+            next = lexToken();
+        }
+        return true;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Token token = next;
+        next = null;
+        return token;
+    }
+
+    /**
+     * Returns the remaining tokens as a sequential, lazily evaluated stream.
+     */
+    public Stream<Token> stream() {
+        Spliterator<Token> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns the current size of the buffer, which only grows for tokens
+     * longer than it.
+     */
+    int getBufferSize() {
+        return buffer.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Lexes the token starting at {@link #start}, see {@link Lexer#lexToken()}.
+     */
+    private Token lexToken() {
+        int state = LexerTable.START;
+        while (has()) {
+            int next = LexerTable.next(state, buffer[position]);
+            if (next == LexerTable.DEAD)
+                break;
+            state = next;
+            position++;
+        }
+        Token.Type type = LexerTable.accept(state);
+        if (type == null) {
+            if (state == LexerTable.START)
+                throw new ParseException("Unexpected character", index(position));
+            throw new ParseException("Incomplete token", index(position));
+        }
+        Token token = new Token(type, new String(buffer, start, position - start), index(start));
+        start = position;
+        return token;
+    }
+
+    private long index(int position) {
+        return offset + position;
+    }
+
+    /**
+     * Returns true if there is a character at {@link #position}, reading more
+     * input into the buffer if needed.
+     */
+    private boolean has() {
+        return position < limit || fill();
+    }
+
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            offset += start;
+            position -= start;
+            limit -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            limit += read;
+            return position < limit;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
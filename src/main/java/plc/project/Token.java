@@ -1,5 +1,7 @@
 package plc.project;
 
+import java.util.Arrays;
+
 public final class Token {
 
     public enum Type {
@@ -11,26 +13,167 @@ public final class Token {
         OPERATOR
     }
 
+    /**
+     * The specific keyword or operator a token is, so the parser can dispatch
+     * with a {@code switch} instead of comparing literals. Keywords are
+     * {@link Type#IDENTIFIER} tokens and operators are {@link Type#OPERATOR}
+     * tokens; everything else (including plain identifiers) is {@link #NONE}.
+     *
+     * Kinds are looked up with a perfect hash over the first and last
+     * characters and the length of the literal, which is collision free for
+     * this fixed set, so classifying a token is one table probe and at most one
+     * literal comparison.
+     */
+    public enum Kind {
+        NONE(null, ""),
+        LET(Type.IDENTIFIER, "LET"),
+        DEF(Type.IDENTIFIER, "DEF"),
+        DO(Type.IDENTIFIER, "DO"),
+        END(Type.IDENTIFIER, "END"),
+        IF(Type.IDENTIFIER, "IF"),
+        ELSE(Type.IDENTIFIER, "ELSE"),
+        FOR(Type.IDENTIFIER, "FOR"),
+        IN(Type.IDENTIFIER, "IN"),
+        WHILE(Type.IDENTIFIER, "WHILE"),
+        RETURN(Type.IDENTIFIER, "RETURN"),
+        NIL(Type.IDENTIFIER, "NIL"),
+        TRUE(Type.IDENTIFIER, "TRUE"),
+        FALSE(Type.IDENTIFIER, "FALSE"),
+        AND(Type.IDENTIFIER, "AND"),
+        OR(Type.IDENTIFIER, "OR"),
+        ASSIGN(Type.OPERATOR, "="),
+        EQUAL(Type.OPERATOR, "=="),
+        NOT_EQUAL(Type.OPERATOR, "!="),
+        LESS(Type.OPERATOR, "<"),
+        LESS_EQUAL(Type.OPERATOR, "<="),
+        GREATER(Type.OPERATOR, ">"),
+        GREATER_EQUAL(Type.OPERATOR, ">="),
+        PLUS(Type.OPERATOR, "+"),
+        MINUS(Type.OPERATOR, "-"),
+        STAR(Type.OPERATOR, "*"),
+        SLASH(Type.OPERATOR, "/"),
+        LEFT_PAREN(Type.OPERATOR, "("),
+        RIGHT_PAREN(Type.OPERATOR, ")"),
+        COMMA(Type.OPERATOR, ","),
+        SEMICOLON(Type.OPERATOR, ";"),
+        COLON(Type.OPERATOR, ":"),
+        DOT(Type.OPERATOR, ".");
+
+        private static final int TABLE_SIZE = 128;
+        private static final Kind[] TABLE = new Kind[TABLE_SIZE];
+        private static final int FIRST;
+        private static final int LAST;
+
+        private final Type type;
+        private final String literal;
+
+        Kind(Type type, String literal) {
+            this.type = type;
+            this.literal = literal;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getLiteral() {
+            return literal;
+        }
+
+        /**
+         * Returns the kind of a token of the given type whose literal is the
+         * {@code length} characters of {@code source} from {@code start}.
+         */
+        public static Kind of(Type type, String source, int start, int length) {
+            if (length == 0 || length > 6) {
+                return NONE;
+            }
+            Kind kind = TABLE[hash(source.charAt(start), source.charAt(start + length - 1), length, FIRST, LAST)];
+            if (kind == null || kind.type != type || kind.literal.length() != length
+                    || !source.regionMatches(start, kind.literal, 0, length)) {
+                return NONE;
+            }
+            return kind;
+        }
+
+        private static int hash(char start, char end, int length, int first, int last) {
+            return (start * first + end * last + length) & (TABLE_SIZE - 1);
+        }
+
+        /**
+         * Fills the table using the given multipliers, returning false if two
+         * kinds collide.
+         */
+        private static boolean build(int first, int last) {
+            Arrays.fill(TABLE, null);
+            for (Kind kind : values()) {
+                if (kind != NONE) {
+                    int hash = hash(kind.literal.charAt(0), kind.literal.charAt(kind.literal.length() - 1), kind.literal.length(), first, last);
+                    if (TABLE[hash] != null) {
+                        return false;
+                    }
+                    TABLE[hash] = kind;
+                }
+            }
+            return true;
+        }
+
+        static {
+            // Search for the first pair of multipliers giving a perfect hash.
+            int i = 1;
+            while (!build(i / TABLE_SIZE, i % TABLE_SIZE)) {
+                if (++i == TABLE_SIZE * TABLE_SIZE) {
+                    throw new AssertionError("No perfect hash for token kinds.");
+                }
+            }
+            FIRST = i / TABLE_SIZE;
+            LAST = i % TABLE_SIZE;
+        }
+
+    }
+
     private final Type type;
+    private final Kind kind;
     private final String literal;
-    private final int index;
+    private final long offset;
 
     public Token(Type type, String literal, int index) {
+        this(type, literal, (long) index);
+    }
+
+    /**
+     * Creates a token at a {@code long} offset, for inputs which may be larger
+     * than 2 GB (see {@link MappedCharStream}).
+     */
+    public Token(Type type, String literal, long offset) {
         this.type = type;
+        this.kind = literal == null ? Kind.NONE : Kind.of(type, literal, 0, literal.length());
         this.literal = literal;
-        this.index = index;
+        this.offset = offset;
     }
 
     public Type getType() {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
     public String getLiteral() {
         return literal;
     }
 
+    /**
+     * Returns the index of this token in the input. Use {@link #getOffset()}
+     * for inputs over 2 GB, where this throws an {@link ArithmeticException}.
+     */
     public int getIndex() {
-        return index;
+        return Math.toIntExact(offset);
+    }
+
+    public long getOffset() {
+        return offset;
     }
 
     @Override
@@ -38,12 +181,12 @@ public final class Token {
         return obj instanceof Token
                 && type == ((Token) obj).type
                 && literal.equals(((Token) obj).literal)
-                && index == ((Token) obj).index;
+                && offset == ((Token) obj).offset;
     }
 
     @Override
     public String toString() {
-        return type + "=" + literal + "@" + index;
+        return type + "=" + literal + "@" + offset;
     }
 
 }
@@ -0,0 +1,216 @@
+package plc.project;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, struct-of-arrays alternative to {@code List<Token>}. Each token
+ * is a position in parallel {@code int} arrays holding its type (and
+ * {@link Token.Kind}, packed into the same int), start and length in the
+ * source, so no {@link Token} objects or literal copies are made
+ * while lexing. Literals are taken lazily as {@link CharSequence} views into
+ * the source, and {@link Parser} reads the buffer directly.
+ *
+ * Buffers made by {@link #lex(String)} index directly into the lexed source.
+ * Buffers adapted from a token list with {@link #of(List)} concatenate the
+ * literals into a synthetic source and keep each token's original index in a
+ * separate array. Going the other way, {@link #asList()} exposes a buffer as
+ * a read-only list that creates {@link Token}s on access.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final String source;
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] indices;
+    private int size = 0;
+
+    public TokenBuffer(String source) {
+        this(source, Math.max(16, source.length() / 4), false);
+    }
+
+    TokenBuffer(String source, int capacity) {
+        this(source, capacity, false);
+    }
+
+    private TokenBuffer(String source, int capacity, boolean indexed) {
+        this.source = source;
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.indices = indexed ? new int[capacity] : null;
+    }
+
+    /**
+     * Lexes the input into a new buffer, see {@link Lexer#lex()}.
+     */
+    public static TokenBuffer lex(String input) {
+        TokenBuffer buffer = new TokenBuffer(input);
+        new Lexer(input).lex(buffer);
+        return buffer;
+    }
+
+    /**
+     * Packs an existing token list into a buffer, keeping the indices of the
+     * tokens as they are.
+     */
+    public static TokenBuffer of(List<Token> tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (Token token : tokens) {
+            builder.append(token.getLiteral());
+        }
+        TokenBuffer buffer = new TokenBuffer(builder.toString(), Math.max(16, tokens.size()), true);
+        int start = 0;
+        for (Token token : tokens) {
+            buffer.add(token.getType(), start, token.getLiteral().length());
+            buffer.indices[buffer.size - 1] = token.getIndex();
+            start += token.getLiteral().length();
+        }
+        return buffer;
+    }
+
+    /**
+     * Appends a token of the given type covering {@code length} characters of
+     * the source from {@code start}, classifying its {@link Token.Kind}.
+     */
+    public void add(Token.Type type, int start, int length) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            if (indices != null) {
+                indices = Arrays.copyOf(indices, capacity);
+            }
+        }
+        types[size] = type.ordinal() | Token.Kind.of(type, source, start, length).ordinal() << 8;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Returns a new buffer over {@code source} made of this buffer's tokens
+     * before {@code from}, the tokens of {@code replacement} (which must be
+     * over {@code source}), and this buffer's tokens from {@code to} on with
+     * their starts shifted by {@code delta}. Used by {@link IncrementalParser}
+     * after re-lexing an edited range.
+     */
+    TokenBuffer splice(String source, int from, int to, TokenBuffer replacement, int delta) {
+        if (indices != null) {
+            throw new UnsupportedOperationException("Cannot splice a buffer adapted from a token list.");
+        }
+        int size = from + replacement.size + (this.size - to);
+        TokenBuffer buffer = new TokenBuffer(source, Math.max(16, size));
+        System.arraycopy(types, 0, buffer.types, 0, from);
+        System.arraycopy(starts, 0, buffer.starts, 0, from);
+        System.arraycopy(lengths, 0, buffer.lengths, 0, from);
+        System.arraycopy(replacement.types, 0, buffer.types, from, replacement.size);
+        System.arraycopy(replacement.starts, 0, buffer.starts, from, replacement.size);
+        System.arraycopy(replacement.lengths, 0, buffer.lengths, from, replacement.size);
+        int offset = from + replacement.size;
+        System.arraycopy(types, to, buffer.types, offset, this.size - to);
+        System.arraycopy(lengths, to, buffer.lengths, offset, this.size - to);
+        for (int i = to; i < this.size; i++) {
+            buffer.starts[offset + i - to] = starts[i] + delta;
+        }
+        buffer.size = size;
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Token.Type getType(int token) {
+        return TYPES[types[check(token)] & 0xFF];
+    }
+
+    public Token.Kind getKind(int token) {
+        return KINDS[types[check(token)] >>> 8];
+    }
+
+    public int getStart(int token) {
+        return starts[check(token)];
+    }
+
+    public int getLength(int token) {
+        return lengths[check(token)];
+    }
+
+    /**
+     * Returns the index of the token in the original input, as in
+     * {@link Token#getIndex()}.
+     */
+    public int getIndex(int token) {
+        return indices == null ? starts[check(token)] : indices[check(token)];
+    }
+
+    /**
+     * Returns a view of the token's literal; no characters are copied.
+     */
+    public CharSequence getLiteral(int token) {
+        return CharBuffer.wrap(source, starts[check(token)], starts[token] + lengths[token]);
+    }
+
+    /**
+     * Returns a copy of the token's literal as a {@link String}.
+     */
+    public String getLiteralString(int token) {
+        return source.substring(starts[check(token)], starts[token] + lengths[token]);
+    }
+
+    /**
+     * Returns true if the token's literal is equal to {@code literal}, without
+     * copying it.
+     */
+    public boolean literalEquals(int token, String literal) {
+        return lengths[check(token)] == literal.length()
+                && source.regionMatches(starts[token], literal, 0, literal.length());
+    }
+
+    /**
+     * Creates a {@link Token} for the token at the given position.
+     */
+    public Token get(int token) {
+        return new Token(getType(token), getLiteralString(token), getIndex(token));
+    }
+
+    /**
+     * Returns a read-only {@code List<Token>} view of this buffer. Tokens are
+     * created on each access, so prefer the buffer accessors in hot paths.
+     */
+    public List<Token> asList() {
+        return new AbstractList<Token>() {
+
+            @Override
+            public Token get(int index) {
+                return TokenBuffer.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+        };
+    }
+
+    private int check(int token) {
+        if (token < 0 || token >= size) {
+            throw new IndexOutOfBoundsException("Token " + token + " out of bounds for size " + size + ".");
+        }
+        return token;
+    }
+
+}
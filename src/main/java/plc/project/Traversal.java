@@ -0,0 +1,96 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A visitor which traverses the AST with an explicit work stack instead of the
+ * Java call stack, so it can handle arbitrarily deep trees.
+ *
+ * The visit methods are the pre-order hooks of each node. Instead of
+ * recursing, they call {@link #visit(Ast)} to schedule a child and
+ * {@link #then(Runnable)} to schedule an action, such as a post-order hook
+ * which uses the results of the children scheduled before it. The work
+ * scheduled by a hook runs in the order it was scheduled, after the hook
+ * returns and before any work scheduled earlier. For example:
+ *
+ * <pre>{@code
+ * public Void visit(Ast.Expr.Binary ast) {
+ *     visit(ast.getLeft());
+ *     visit(ast.getRight());
+ *     then(() -> ast.setType(ast.getLeft().getType()));
+ *     return null;
+ * }
+ * }</pre>
+ *
+ * Actions may schedule more work themselves. When a visit method is called
+ * directly, outside of a traversal, the scheduled work runs immediately.
+ */
+public abstract class Traversal implements Ast.Visitor<Void> {
+
+    /**
+     * The work scheduled by the running hook or action, or {@code null} when
+     * no traversal is running.
+     */
+    private List<Object> scheduled = null;
+
+    /**
+     * Traverses the AST from {@code ast}, or schedules it if a traversal is
+     * already running.
+     */
+    @Override
+    public final Void visit(Ast ast) {
+        if (scheduled != null) {
+            scheduled.add(ast);
+        } else {
+            traverse(ast);
+        }
+        return null;
+    }
+
+    /**
+     * Schedules each of the nodes, in order.
+     */
+    protected final void visit(List<? extends Ast> asts) {
+        for (Ast ast : asts) {
+            visit(ast);
+        }
+    }
+
+    /**
+     * Schedules the action after the work already scheduled by the running
+     * hook or action.
+     */
+    protected final void then(Runnable action) {
+        if (scheduled != null) {
+            scheduled.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    private void traverse(Ast root) {
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        List<Object> work = new ArrayList<>();
+        stack.push(root);
+        try {
+            while (!stack.isEmpty()) {
+                Object item = stack.pop();
+                scheduled = work;
+                if (item instanceof Ast) {
+                    ((Ast) item).accept(this);
+                } else {
+                    ((Runnable) item).run();
+                }
+                for (int i = work.size() - 1; i >= 0; i--) {
+                    stack.push(work.get(i));
+                }
+                work.clear();
+            }
+        } finally {
+            scheduled = null;
+        }
+    }
+
+}
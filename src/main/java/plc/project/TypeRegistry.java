@@ -0,0 +1,59 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The types known to one compilation, so programs can be analyzed
+ * concurrently with different types registered.
+ *
+ * The builtin types are shared by every registry. They are looked up in an
+ * unmodifiable map which is built once, and their scopes are only defined
+ * while {@link Environment} is initialized, so after that they are only read
+ * and are safe to share between threads. Types registered in a registry are
+ * only visible in that registry, and may be registered and looked up
+ * concurrently.
+ */
+public final class TypeRegistry {
+
+    private static final Map<String, Environment.Type> BUILTINS;
+
+    static {
+        Map<String, Environment.Type> builtins = new HashMap<>();
+        for (Environment.Type type : new Environment.Type[] {
+                Environment.Type.ANY,
+                Environment.Type.NIL,
+                Environment.Type.INTEGER_ITERABLE,
+                Environment.Type.COMPARABLE,
+                Environment.Type.BOOLEAN,
+                Environment.Type.INTEGER,
+                Environment.Type.DECIMAL,
+                Environment.Type.CHARACTER,
+                Environment.Type.STRING}) {
+            builtins.put(type.getName(), type);
+        }
+        BUILTINS = Collections.unmodifiableMap(builtins);
+    }
+
+    private final Map<String, Environment.Type> types = new ConcurrentHashMap<>();
+
+    public Environment.Type getType(String name) {
+        Environment.Type type = BUILTINS.get(name);
+        if (type == null) {
+            type = types.get(name);
+            if (type == null) {
+                throw new RuntimeException("Unknown type " + name + ".");
+            }
+        }
+        return type;
+    }
+
+    public void registerType(Environment.Type type) {
+        if (BUILTINS.containsKey(type.getName()) || types.putIfAbsent(type.getName(), type) != null) {
+            throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs {@link Bytecode} with a single {@code switch} loop, as a faster
+ * alternative to the {@link Interpreter}.
+ *
+ * Values behave as in the {@link Interpreter}: the fields are defined in the
+ * scope (so {@link #getScope()} can be inspected afterwards), the methods are
+ * defined as functions of the scope, and unqualified calls and variables
+ * which aren't local are looked up in the scope. Those lookups happen the
+ * first time each global or call is used, after which they are array loads.
+ * Calls between the methods of the program skip the scope entirely and run
+ * directly on a new frame.
+ */
+public final class VirtualMachine {
+
+    static final MathContext DIVISION = new MathContext(1, RoundingMode.HALF_EVEN);
+
+    private final Scope scope;
+    private Bytecode bytecode = null;
+    private int[] code = new int[0];
+    private Object[] constants = new Object[0];
+    private Environment.Variable[] globals = new Environment.Variable[0];
+    private Environment.Function[] functions = new Environment.Function[0];
+
+    /**
+     * The method each call is bound to, if it is one of the program's, or
+     * {@code null}.
+     */
+    private Bytecode.Method[] targets = new Bytecode.Method[0];
+
+    /**
+     * The function defined for each method of the program, to recognize them
+     * when calls are bound.
+     */
+    private Environment.Function[] defined = new Environment.Function[0];
+
+    public VirtualMachine(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles and runs the source, returning the result of {@code main}.
+     */
+    public Environment.PlcObject run(Ast.Source ast) {
+        return run(new BytecodeCompiler().compile(ast));
+    }
+
+    public Environment.PlcObject run(Bytecode bytecode) {
+        this.bytecode = bytecode;
+        code = bytecode.getCode();
+        constants = bytecode.getConstants();
+        globals = new Environment.Variable[bytecode.getGlobals().size()];
+        functions = new Environment.Function[bytecode.getCalls().size()];
+        targets = new Bytecode.Method[functions.length];
+        invoke(bytecode.getInit(), new Object[bytecode.getInit().getFrameSize()]);
+
+        List<Bytecode.Method> methods = bytecode.getMethods();
+        defined = new Environment.Function[methods.size()];
+        for (int i = 0; i < methods.size(); i++) {
+            Bytecode.Method method = methods.get(i);
+            scope.defineFunction(method.getName(), method.getArity(), args -> {
+                Object[] frame = new Object[method.getFrameSize()];
+                for (int j = 0; j < method.getArity(); j++) {
+                    frame[j] = Environment.create(args.get(j).getValue());
+                }
+                return invoke(method, frame);
+            });
+            defined[i] = scope.lookupFunction(method.getName(), method.getArity());
+        }
+        Environment.Function main = scope.lookupFunction("main", 0);
+        return Environment.create(main.invoke(null).getValue());
+    }
+
+    /**
+     * Runs the method on a frame which already contains its arguments.
+     */
+    private Environment.PlcObject invoke(Bytecode.Method method, Object[] frame) {
+        int[] code = this.code;
+        Object[] constants = this.constants;
+        int pc = method.getEntry();
+        int sp = method.getLocals();
+        while (true) {
+            switch (code[pc]) {
+                case Bytecode.NIL:
+                    frame[sp++] = Environment.NIL;
+                    pc += 1;
+                    break;
+                case Bytecode.CONST:
+                    frame[sp++] = constants[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Bytecode.LOAD_LOCAL:
+                    frame[sp++] = frame[code[pc + 1]];
+                    pc += 2;
+                    break;
+                case Bytecode.STORE_LOCAL:
+                    frame[code[pc + 1]] = frame[--sp];
+                    pc += 2;
+                    break;
+                case Bytecode.LOAD_GLOBAL:
+                    frame[sp++] = global(code[pc + 1]).getValue();
+                    pc += 2;
+                    break;
+                case Bytecode.STORE_GLOBAL:
+                    global(code[pc + 1]).setValue((Environment.PlcObject) frame[--sp]);
+                    pc += 2;
+                    break;
+                case Bytecode.DEFINE_GLOBAL:
+                    scope.defineVariable((String) constants[code[pc + 1]], (Environment.PlcObject) frame[--sp]);
+                    // The field may shadow a variable of the parent scope
+                    // which was already bound by an earlier field's value.
+                    Arrays.fill(globals, null);
+                    pc += 2;
+                    break;
+                case Bytecode.GET_FIELD: {
+                    Environment.PlcObject object = (Environment.PlcObject) frame[sp - 1];
+                    frame[sp - 1] = object.getField((String) constants[code[pc + 1]]).getValue();
+                    pc += 2;
+                    break;
+                }
+                case Bytecode.SET_FIELD: {
+                    Environment.PlcObject value = (Environment.PlcObject) frame[--sp];
+                    Environment.PlcObject object = (Environment.PlcObject) frame[--sp];
+                    object.setField((String) constants[code[pc + 1]], value);
+                    pc += 2;
+                    break;
+                }
+                case Bytecode.POP:
+                    sp--;
+                    pc += 1;
+                    break;
+                case Bytecode.JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case Bytecode.JUMP_FALSE:
+                    pc = Interpreter.requireType(Boolean.class, (Environment.PlcObject) frame[--sp]) ? pc + 2 : code[pc + 1];
+                    break;
+                case Bytecode.AND:
+                    if (Interpreter.requireType(Boolean.class, (Environment.PlcObject) frame[sp - 1])) {
+                        sp--;
+                        pc += 2;
+                    } else {
+                        pc = code[pc + 1];
+                    }
+                    break;
+                case Bytecode.OR:
+                    if (Interpreter.requireType(Boolean.class, (Environment.PlcObject) frame[sp - 1])) {
+                        pc = code[pc + 1];
+                    } else {
+                        sp--;
+                        pc += 2;
+                    }
+                    break;
+                case Bytecode.BOOLEAN:
+                    Interpreter.requireType(Boolean.class, (Environment.PlcObject) frame[sp - 1]);
+                    pc += 1;
+                    break;
+                case Bytecode.LESS:
+                case Bytecode.LESS_EQUAL:
+                case Bytecode.GREATER:
+                case Bytecode.GREATER_EQUAL:
+                case Bytecode.EQUAL:
+                case Bytecode.NOT_EQUAL:
+                case Bytecode.ADD:
+                case Bytecode.SUBTRACT:
+                case Bytecode.MULTIPLY:
+                case Bytecode.DIVIDE: {
+                    Environment.PlcObject right = (Environment.PlcObject) frame[--sp];
+                    Environment.PlcObject left = (Environment.PlcObject) frame[sp - 1];
+                    frame[sp - 1] = binary(code[pc], left, right);
+                    pc += 1;
+                    break;
+                }
+                case Bytecode.CALL: {
+                    int call = code[pc + 1];
+                    int arity = code[pc + 2];
+                    sp -= arity;
+                    Environment.Function function = functions[call];
+                    if (function == null) {
+                        bind(call);
+                        function = functions[call];
+                    }
+                    Bytecode.Method target = targets[call];
+                    Environment.PlcObject result;
+                    if (target != null) {
+                        Object[] callee = new Object[target.getFrameSize()];
+                        for (int i = 0; i < arity; i++) {
+                            callee[i] = Environment.create(((Environment.PlcObject) frame[sp + i]).getValue());
+                        }
+                        result = invoke(target, callee);
+                    } else {
+                        result = function.invoke(arguments(frame, sp, arity));
+                    }
+                    frame[sp++] = Environment.create(result.getValue());
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.CALL_METHOD: {
+                    int arity = code[pc + 2];
+                    Environment.PlcObject object = (Environment.PlcObject) frame[--sp];
+                    sp -= arity;
+                    frame[sp] = object.callMethod((String) constants[code[pc + 1]], arguments(frame, sp, arity));
+                    sp++;
+                    pc += 3;
+                    break;
+                }
+                case Bytecode.ITERATOR: {
+                    Iterable<?> iterable = Interpreter.requireType(Iterable.class, (Environment.PlcObject) frame[sp - 1]);
+                    frame[sp - 1] = iterable.iterator();
+                    pc += 1;
+                    break;
+                }
+                case Bytecode.NEXT: {
+                    Iterator<?> iterator = (Iterator<?>) frame[sp - 1];
+                    if (iterator.hasNext()) {
+                        frame[code[pc + 1]] = iterator.next();
+                        pc += 3;
+                    } else {
+                        sp--;
+                        pc = code[pc + 2];
+                    }
+                    break;
+                }
+                case Bytecode.RETURN:
+                    return (Environment.PlcObject) frame[sp - 1];
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc + ".");
+            }
+        }
+    }
+
+    /**
+     * Returns the variable of a global, looking it up in the scope the first
+     * time.
+     */
+    private Environment.Variable global(int slot) {
+        Environment.Variable variable = globals[slot];
+        if (variable == null) {
+            variable = scope.lookupVariable(bytecode.getGlobals().get(slot));
+            globals[slot] = variable;
+        }
+        return variable;
+    }
+
+    /**
+     * Binds the call to its function in the scope, and to the method if it is
+     * one of the program's.
+     */
+    private void bind(int call) {
+        Bytecode.Call signature = bytecode.getCalls().get(call);
+        Environment.Function function = scope.lookupFunction(signature.getName(), signature.getArity());
+        functions[call] = function;
+        for (int i = 0; i < defined.length; i++) {
+            if (defined[i] == function) {
+                targets[call] = bytecode.getMethods().get(i);
+            }
+        }
+    }
+
+    private static List<Environment.PlcObject> arguments(Object[] frame, int from, int arity) {
+        List<Environment.PlcObject> arguments = new ArrayList<>(arity);
+        for (int i = 0; i < arity; i++) {
+            arguments.add((Environment.PlcObject) frame[from + i]);
+        }
+        return arguments;
+    }
+
+    /**
+     * Evaluates a binary operator as {@link Interpreter#visit(Ast.Expr.Binary)}
+     * does, also used by the {@link ClosureInterpreter}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Environment.PlcObject binary(int opcode, Environment.PlcObject left, Environment.PlcObject right) {
+        if (opcode == Bytecode.ADD && left.getValue() instanceof String) {
+            return Environment.create((String) left.getValue() + Interpreter.requireType(String.class, right));
+        }
+        switch (opcode) {
+            case Bytecode.LESS:
+            case Bytecode.LESS_EQUAL:
+            case Bytecode.GREATER:
+            case Bytecode.GREATER_EQUAL: {
+                Comparable cmp1 = Interpreter.requireType(Comparable.class, left);
+                Comparable cmp2 = Interpreter.requireType(cmp1.getClass(), right);
+                int comparison = cmp1.compareTo(cmp2);
+                switch (opcode) {
+                    case Bytecode.LESS:
+                        return Environment.create(comparison < 0);
+                    case Bytecode.LESS_EQUAL:
+                        return Environment.create(comparison <= 0);
+                    case Bytecode.GREATER:
+                        return Environment.create(comparison > 0);
+                    default:
+                        return Environment.create(comparison >= 0);
+                }
+            }
+            case Bytecode.EQUAL:
+            case Bytecode.NOT_EQUAL: {
+                Object obj1 = Interpreter.requireType(Object.class, left);
+                Object obj2 = Interpreter.requireType(Object.class, right);
+                return Environment.create(obj1.equals(obj2) == (opcode == Bytecode.EQUAL));
+            }
+            case Bytecode.ADD:
+            case Bytecode.SUBTRACT:
+            case Bytecode.MULTIPLY:
+            case Bytecode.DIVIDE:
+                if (left.getValue() instanceof BigInteger) {
+                    BigInteger l = (BigInteger) left.getValue();
+                    BigInteger r = Interpreter.requireType(BigInteger.class, right);
+                    switch (opcode) {
+                        case Bytecode.ADD:
+                            return Environment.create(l.add(r));
+                        case Bytecode.SUBTRACT:
+                            return Environment.create(l.subtract(r));
+                        case Bytecode.MULTIPLY:
+                            return Environment.create(l.multiply(r));
+                        default:
+                            return Environment.create(l.divide(r));
+                    }
+                } else if (left.getValue() instanceof BigDecimal) {
+                    BigDecimal l = (BigDecimal) left.getValue();
+                    BigDecimal r = Interpreter.requireType(BigDecimal.class, right);
+                    switch (opcode) {
+                        case Bytecode.ADD:
+                            return Environment.create(l.add(r));
+                        case Bytecode.SUBTRACT:
+                            return Environment.create(l.subtract(r));
+                        case Bytecode.MULTIPLY:
+                            return Environment.create(l.multiply(r));
+                        default:
+                            return Environment.create(l.divide(r, DIVISION));
+                    }
+                } else if (opcode == Bytecode.DIVIDE) {
+                    return Environment.NIL;
+                }
+                throw new RuntimeException();
+            default:
+                throw new IllegalStateException("Unknown operator opcode " + opcode + ".");
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Times the {@link Analyzer} against the {@link ParallelAnalyzer} on a
+ * generated program of 10k methods, with pools of 1, 2 and 4 threads and
+ * one per processor. Each run analyzes a freshly parsed AST, and only the
+ * analysis is timed. Every path is run once before any is measured, since
+ * they share most of their code and the first one would otherwise pay for
+ * its compilation.
+ */
+final class AnalyzerBenchmark {
+
+    public static void main(String[] args) {
+        int methods = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        TokenBuffer tokens = TokenBuffer.lex(ParallelAnalyzerTests.source(methods));
+        run(tokens, false);
+        run(tokens, true);
+    }
+
+    private static void run(TokenBuffer tokens, boolean print) {
+        long sequential = Benchmarks.time(5, 10, () -> new Parser(tokens).parseSource(), source -> {
+            // The Analyzer expects main to be declared already.
+            Scope scope = new Scope(null);
+            scope.defineFunction("main", "main", Arrays.asList(), Environment.Type.INTEGER, arguments -> Environment.NIL);
+            Analyzer analyzer = new Analyzer(scope);
+            analyzer.visit(source);
+            return analyzer;
+        });
+        if (print) {
+            System.out.println("Analyzer: " + sequential / 1_000_000 + " ms");
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads : IntStream.of(1, 2, 4, processors).distinct().sorted().toArray()) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long parallel = Benchmarks.time(5, 10, () -> new Parser(tokens).parseSource(), source -> {
+                    ParallelAnalyzer analyzer = new ParallelAnalyzer(new Scope(null), pool);
+                    analyzer.analyze(source);
+                    return analyzer;
+                });
+                if (print) {
+                    System.out.println("ParallelAnalyzer (" + threads + " threads, " + processors + " processors): "
+                            + parallel / 1_000_000 + " ms");
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+}
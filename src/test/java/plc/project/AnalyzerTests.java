@@ -423,6 +423,31 @@ public final class AnalyzerTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testDeepNesting(String test, Ast ast, Ast.Expr innermost, Environment.Type type) {
+        Assertions.assertDoesNotThrow(() -> new Analyzer(new Scope(null)).visit(ast));
+        Assertions.assertEquals(type, innermost.getType());
+    }
+
+    private static Stream<Arguments> testDeepNesting() {
+        Ast.Expr.Literal literal = new Ast.Expr.Literal(BigInteger.ONE);
+        Ast.Expr expression = literal;
+        for (int i = 0; i < 200_000; i++) {
+            expression = new Ast.Expr.Binary("+", new Ast.Expr.Literal(BigInteger.ONE), expression);
+        }
+        Ast.Expr.Literal condition = new Ast.Expr.Literal(true);
+        Ast.Stmt statement = new Ast.Stmt.While(condition, Arrays.asList());
+        for (int i = 0; i < 200_000; i++) {
+            statement = new Ast.Stmt.While(new Ast.Expr.Literal(true), Arrays.asList(statement));
+        }
+        return Stream.of(
+                Arguments.of("Expression", expression, expression, Environment.Type.INTEGER),
+                Arguments.of("Innermost Expression", expression, literal, Environment.Type.INTEGER),
+                Arguments.of("Statements", statement, condition, Environment.Type.BOOLEAN)
+        );
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
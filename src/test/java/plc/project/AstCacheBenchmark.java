@@ -0,0 +1,27 @@
+package plc.project;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares lexing and parsing a generated 5 MB program against loading it
+ * from an {@link AstCache} hit.
+ */
+final class AstCacheBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+        Path directory = Files.createTempDirectory("ast-cache");
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        cache.parse(source);
+
+        long parse = Benchmarks.time(3, 5, () -> new Parser(TokenBuffer.lex(source)).parseSource());
+        long hit = Benchmarks.time(3, 5, () -> cache.parse(source));
+        System.out.println("Lexer + Parser: " + parse / 1_000_000 + " ms (" + Benchmarks.throughput(source.length(), parse) + ")");
+        System.out.println("AstCache hit: " + hit / 1_000_000 + " ms (" + Benchmarks.throughput(source.length(), hit) + "), "
+                + cache.size() / 1024 + " KB on disk");
+    }
+
+}
@@ -0,0 +1,101 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class AstCacheTests {
+
+    @Test
+    void testHit(@TempDir Path directory) throws IOException {
+        String input = "LET x: Integer = 1;\nDEF main(): Integer DO\n    RETURN x + 2.5 * 'c';\nEND";
+        Ast.Source expected = new Parser(TokenBuffer.lex(input)).parseSource();
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        Assertions.assertEquals(expected, cache.parse(input));
+        Assertions.assertEquals(1, entries(directory).size());
+        Assertions.assertEquals(expected, cache.parse(input));
+        Assertions.assertEquals(expected, new AstCache(directory, Long.MAX_VALUE).parse(input));
+        Assertions.assertEquals(1, entries(directory).size());
+    }
+
+    @Test
+    void testInvalidEntry(@TempDir Path directory) throws IOException {
+        String input = "DEF main() DO print(1); END";
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        cache.parse(input);
+        Path entry = entries(directory).get(0);
+        Files.write(entry, new byte[] {1, 2, 3});
+        Assertions.assertEquals(new Parser(TokenBuffer.lex(input)).parseSource(), cache.parse(input));
+        Assertions.assertEquals(Files.size(entry), cache.size());
+    }
+
+    @Test
+    void testCorruptEntry(@TempDir Path directory) throws IOException {
+        // The header is valid, but the node records point out of bounds.
+        String input = "DEF main() DO print(1); END";
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        cache.parse(input);
+        Path entry = entries(directory).get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        byte[] corrupt = bytes.clone();
+        for (int i = 32; i < 40; i++) {
+            corrupt[i] = (byte) 0x7F;
+        }
+        Files.write(entry, corrupt);
+        Assertions.assertEquals(new Parser(TokenBuffer.lex(input)).parseSource(), new AstCache(directory, Long.MAX_VALUE).parse(input));
+        Assertions.assertArrayEquals(bytes, Files.readAllBytes(entry));
+    }
+
+    @Test
+    void testDeepNesting(@TempDir Path directory) throws IOException {
+        int depth = 100_000;
+        String input = "DEF main() DO RETURN " + String.join("", Collections.nCopies(depth, "(")) + "1"
+                + String.join("", Collections.nCopies(depth, ")")) + "; END";
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        for (int i = 0; i < 2; i++) {
+            Ast.Stmt.Return stmt = (Ast.Stmt.Return) cache.parse(input).getMethods().get(0).getStatements().get(0);
+            Assertions.assertEquals(depth, ParserTests.depth(stmt.getValue()));
+        }
+        Assertions.assertEquals(1, entries(directory).size());
+    }
+
+    @Test
+    void testParseException(@TempDir Path directory) throws IOException {
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        Assertions.assertThrows(ParseException.class, () -> cache.parse("LET x = 1;"));
+        Assertions.assertEquals(0, entries(directory).size());
+    }
+
+    @Test
+    void testEviction(@TempDir Path directory) throws IOException {
+        AstCache cache = new AstCache(directory, Long.MAX_VALUE);
+        cache.parse("DEF a() DO END");
+        Path a = entries(directory).get(0);
+        long size = cache.size();
+        cache = new AstCache(directory, 2 * size);
+        cache.parse("DEF b() DO END");
+        Path b = entries(directory).stream().filter(path -> !path.equals(a)).findFirst().get();
+        cache.parse("DEF a() DO END");
+        cache.parse("DEF c() DO END");
+        Assertions.assertEquals(2 * size, cache.size());
+        Assertions.assertEquals(2, entries(directory).size());
+        Assertions.assertTrue(Files.exists(a));
+        Assertions.assertFalse(Files.exists(b));
+        Assertions.assertEquals(2 * size, new AstCache(directory, 2 * size).size());
+    }
+
+    private static List<Path> entries(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.sorted().collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package plc.project;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared helpers for the benchmark mains. These are plain programs rather than
+ * JUnit tests, so run them directly (e.g. from IntelliJ or with {@code java})
+ * against the compiled test classes.
+ */
+final class Benchmarks {
+
+    private Benchmarks() {}
+
+    /**
+     * Generates a syntactically valid program of roughly {@code bytes}
+     * characters, made of a few fields followed by many similar methods.
+     */
+    static String source(int bytes) {
+        StringBuilder builder = new StringBuilder(bytes + 1024);
+        builder.append("LET counter: Integer = 0;\n");
+        builder.append("LET scale: Decimal = 1.5;\n");
+        for (int i = 0; builder.length() < bytes; i++) {
+            builder.append("DEF method").append(i).append("(x: Integer, y: Decimal): Integer DO\n")
+                    .append("    LET name: String = \"method ").append(i).append("\\n\";\n")
+                    .append("    IF x >= ").append(i).append(" AND y != -2.25 DO\n")
+                    .append("        counter = counter + x * 2;\n")
+                    .append("        print(name.length);\n")
+                    .append("    ELSE\n")
+                    .append("        print('c');\n")
+                    .append("    END\n")
+                    .append("    WHILE x < 100 DO\n")
+                    .append("        x = x + 1;\n")
+                    .append("    END\n")
+                    .append("    RETURN x - ").append(i).append(";\n")
+                    .append("END\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Runs {@code task} for a few warmup iterations and then returns the best
+     * time in nanoseconds over the measured iterations.
+     */
+    static long time(int warmup, int iterations, Supplier<?> task) {
+        Object sink = null;
+        for (int i = 0; i < warmup; i++) {
+            sink = task.get();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            sink = task.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == null) {
+            throw new AssertionError("Benchmark task returned null.");
+        }
+        return best;
+    }
+
+    /**
+     * Like {@link #time(int, int, Supplier)}, but each run of {@code task}
+     * gets a fresh input from {@code setup}, which is not timed.
+     */
+    static <T> long time(int warmup, int iterations, Supplier<T> setup, Function<? super T, ?> task) {
+        Object sink = null;
+        for (int i = 0; i < warmup; i++) {
+            sink = task.apply(setup.get());
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            T input = setup.get();
+            long start = System.nanoTime();
+            sink = task.apply(input);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == null) {
+            throw new AssertionError("Benchmark task returned null.");
+        }
+        return best;
+    }
+
+    /**
+     * Runs {@code task} once and returns the bytes it allocated on this
+     * thread, or -1 if the JVM can't tell.
+     */
+    static long allocatedBytes(Supplier<?> task) {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        task.get();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+    }
+
+    /**
+     * Formats a throughput in MB/s for {@code bytes} processed in
+     * {@code nanos}.
+     */
+    static String throughput(long bytes, long nanos) {
+        return String.format("%.1f MB/s", bytes / (nanos / 1e9) / (1 << 20));
+    }
+
+    /**
+     * Returns the heap in use after a full GC, for measuring retained sizes.
+     */
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,117 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the {@link VirtualMachineTests} cases (including those of the
+ * {@link InterpreterTests}) on the {@link ClosureInterpreter}.
+ */
+final class ClosureInterpreterTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testInterpreter(String test, Ast ast, Object expected) {
+        Scope scope = new Scope(null);
+        scope.defineVariable("variable", Environment.create("variable"));
+        scope.defineFunction("function", 0, args -> Environment.create("function"));
+        Scope object = new Scope(null);
+        object.defineVariable("field", Environment.create("object.field"));
+        object.defineFunction("method", 1, args -> Environment.create("object.method"));
+        scope.defineVariable("object", new Environment.PlcObject(object, "object"));
+
+        // Expressions are returned from main.
+        Ast.Source source = ast instanceof Ast.Source ? (Ast.Source) ast : new Ast.Source(Arrays.asList(),
+                Arrays.asList(new Ast.Method("main", Arrays.asList(), Arrays.asList(new Ast.Stmt.Return((Ast.Expr) ast)))));
+        ClosureInterpreter interpreter = new ClosureInterpreter(scope);
+        if (expected != null) {
+            Assertions.assertEquals(expected, interpreter.run(source).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> interpreter.run(source));
+        }
+    }
+
+    private static Stream<Arguments> testInterpreter() {
+        return VirtualMachineTests.testInterpreter();
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String source, Object expected) {
+        Ast.Source ast = new Parser(TokenBuffer.lex(source)).parseSource();
+        Assertions.assertEquals(expected, new ClosureInterpreter(new Scope(null)).run(ast).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.concat(VirtualMachineTests.testSource(), Stream.of(
+                Arguments.of("Overflow",
+                        "LET max: Integer = 9223372036854775807;\n" +
+                        "DEF main(): Integer DO RETURN (max + 1) * 2 - max * max / max - (max * 2 - max); END\n",
+                        BigInteger.valueOf(2)
+                ),
+                Arguments.of("Minimum Division",
+                        "DEF main(): Integer DO RETURN (-9223372036854775807 - 1) / -1; END\n",
+                        BigInteger.ONE.shiftLeft(63)
+                ),
+                Arguments.of("Large Operand",
+                        "DEF main(): Integer DO RETURN 1 + 2 * 3 + 99999999999999999999 - 1; END\n",
+                        new BigInteger("100000000000000000005")
+                )
+        ));
+    }
+
+    @Test
+    void testFor() {
+        Scope scope = new Scope(null);
+        scope.defineVariable("sum", Environment.create(BigInteger.ZERO));
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO\n" +
+                "    FOR num IN list DO IF num == 3 DO RETURN sum; END sum = sum + num; END\n" +
+                "    RETURN NIL;\n" +
+                "END\n")).parseSource();
+        Assertions.assertEquals(BigInteger.valueOf(3), new ClosureInterpreter(scope).run(ast).getValue());
+        Assertions.assertEquals(BigInteger.valueOf(3), scope.lookupVariable("sum").getValue().getValue());
+    }
+
+    @Test
+    void testUndefinedFunction() {
+        List<Object> log = new ArrayList<>();
+        Scope scope = new Scope(null);
+        scope.defineFunction("log", 1, args -> {
+            log.add(args.get(0).getValue());
+            return args.get(0);
+        });
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO RETURN undefined(log(1)); END\n")).parseSource();
+        Assertions.assertThrows(RuntimeException.class, () -> new ClosureInterpreter(scope).run(ast));
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE), log);
+    }
+
+    @Test
+    void testSpecialization() {
+        // Each operator specializes to the integers of its first call and
+        // has to fall back for the other types.
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF add(a: Any, b: Any): Any DO RETURN a + b; END\n" +
+                "DEF less(a: Any, b: Any): Boolean DO RETURN a < b; END\n" +
+                "DEF main(): String DO\n" +
+                "    IF add(1, 2) == 3 AND add(1.5, 2.0) == 3.5 DO\n" +
+                "        IF less(1, 2) AND less(2.0, 1.0) == FALSE AND less(\"a\", \"b\") DO RETURN add(\"a\", \"b\"); END\n" +
+                "    END\n" +
+                "    RETURN NIL;\n" +
+                "END\n")).parseSource();
+        Assertions.assertEquals("ab", new ClosureInterpreter(new Scope(null)).run(ast).getValue());
+    }
+
+}
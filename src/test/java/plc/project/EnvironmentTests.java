@@ -0,0 +1,31 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+final class EnvironmentTests {
+
+    @Test
+    void testSharedValues() {
+        Assertions.assertSame(Environment.TRUE, Environment.create(true));
+        Assertions.assertSame(Environment.FALSE, Environment.create((Object) Boolean.FALSE));
+        Assertions.assertSame(Environment.create(BigInteger.valueOf(-128)), Environment.create(new BigInteger("-128")));
+        Assertions.assertSame(Environment.create(BigInteger.valueOf(1023)), Environment.integer(1023));
+        Assertions.assertNotSame(Environment.create(BigInteger.valueOf(1024)), Environment.create(BigInteger.valueOf(1024)));
+        Assertions.assertNotSame(Environment.create("string"), Environment.create("string"));
+        Assertions.assertEquals(BigInteger.valueOf(-129), Environment.integer(-129).getValue());
+        Assertions.assertEquals(BigInteger.ONE.shiftLeft(40), Environment.create(BigInteger.ONE.shiftLeft(40)).getValue());
+    }
+
+    @Test
+    void testMembers() {
+        // Created values share one scope, in which nothing can be defined.
+        Environment.PlcObject value = Environment.create(BigInteger.ONE);
+        Assertions.assertThrows(RuntimeException.class, () -> value.getField("field"));
+        Assertions.assertThrows(RuntimeException.class, () -> value.getType().getScope().defineVariable("field", Environment.NIL));
+        Assertions.assertThrows(RuntimeException.class, () -> Environment.create("string").getField("field"));
+    }
+
+}
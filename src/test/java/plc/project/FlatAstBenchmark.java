@@ -0,0 +1,30 @@
+package plc.project;
+
+/**
+ * Compares the retained heap of the object {@link Ast} and of {@link FlatAst}
+ * for a generated 5 MB program, in bytes per KB of source.
+ */
+final class FlatAstBenchmark {
+
+    public static void main(String[] args) {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+        TokenBuffer tokens = TokenBuffer.lex(source);
+        double kb = source.length() / 1024.0;
+
+        long before = Benchmarks.usedMemory();
+        Ast.Source ast = new Parser(tokens).parseSource();
+        long objects = Benchmarks.usedMemory() - before;
+
+        before = Benchmarks.usedMemory();
+        FlatAst flat = FlatAst.parse(tokens);
+        long compact = Benchmarks.usedMemory() - before;
+
+        System.out.println("Ast: " + objects / 1024 + " KB (" + (long) (objects / kb) + " bytes/source KB)");
+        System.out.println("FlatAst: " + compact / 1024 + " KB (" + (long) (compact / kb) + " bytes/source KB)");
+        if (ast.getMethods().size() != flat.getSource().getMethods().size()) {
+            throw new AssertionError("Method counts differ.");
+        }
+    }
+
+}
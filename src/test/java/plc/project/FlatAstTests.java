@@ -0,0 +1,144 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+public class FlatAstTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        TokenBuffer tokens = TokenBuffer.lex(input);
+        Ast.Source expected = new Parser(tokens).parseSource();
+        FlatAst flat = FlatAst.parse(tokens);
+        Assertions.assertEquals(expected, flat.toSource());
+        Assertions.assertEquals(expected, flat.getSource());
+        Assertions.assertEquals(expected, FlatAst.of(expected).toSource());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Fields", "LET x: Integer; LET y: Decimal = 1.0; LET z: String = \"z\";"),
+                Arguments.of("Method", "DEF f(x: Integer, y: Decimal): Integer DO RETURN x; END"),
+                Arguments.of("Statements", "DEF f() DO LET x = 'c'; LET y: Boolean; x = NIL; print(x); END"),
+                Arguments.of("Blocks", "DEF f() DO IF x DO y(); ELSE z(); END FOR i IN l DO END WHILE TRUE DO END END"),
+                Arguments.of("Expressions", "DEF f() DO RETURN (a + 1) * b.c - d.e(1, 2) == f(g) AND FALSE; END"),
+                Arguments.of("Trailing Tokens", "LET x: Integer; DEF f() DO END LET y: Integer;"),
+                Arguments.of("Generated", Benchmarks.source(50_000))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testSerialize(String test, String input) {
+        FlatAst flat = FlatAst.parse(TokenBuffer.lex(input));
+        FlatAst copy = FlatAst.deserialize(ByteBuffer.wrap(flat.serialize()));
+        Assertions.assertEquals(flat.toSource(), copy.toSource());
+        for (int i = 0; i < flat.size(); i++) {
+            Assertions.assertEquals(flat.getStart(i), copy.getStart(i));
+            Assertions.assertEquals(flat.getEnd(i), copy.getEnd(i));
+        }
+    }
+
+    private static Stream<Arguments> testSerialize() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Literals", "DEF f() DO f(NIL, TRUE, FALSE, 0, -123456789012345678901234567890, 1.0, -0.00100, 'c', '\\n', \"\", \"string\\t\u00e9\u4e2d\"); END"),
+                Arguments.of("Type Names", "LET x: Integer; DEF f(x: Integer, y: Decimal): Integer DO LET z: String; END"),
+                Arguments.of("Generated", Benchmarks.source(50_000))
+        );
+    }
+
+    @Test
+    void testDeserializeInvalid() {
+        byte[] bytes = FlatAst.parse(TokenBuffer.lex("LET x: Integer = 1;")).serialize();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.deserialize(ByteBuffer.wrap(bytes, 4, bytes.length - 4)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.deserialize(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))));
+        bytes[7]++;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.deserialize(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void testDeserializeLengths() {
+        // Any int may be a length, so each is replaced by a huge one in turn,
+        // which must be rejected before anything is allocated for it.
+        byte[] bytes = FlatAst.parse(TokenBuffer.lex("LET x: Integer = 1; DEF f() DO RETURN \"string\" + 1.5; END")).serialize();
+        for (int offset = 8; offset <= bytes.length - 4; offset++) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(offset, Integer.MAX_VALUE - 1);
+            try {
+                FlatAst.deserialize(ByteBuffer.wrap(corrupt));
+            } catch (IllegalArgumentException e) {
+                // Rejected.
+            }
+        }
+    }
+
+    @Test
+    void testDeserializeCorrupt() {
+        // Each int of the node records is changed in turn, which must either
+        // be rejected or still decode.
+        FlatAst flat = FlatAst.parse(TokenBuffer.lex("LET x: Integer = 1;\n" +
+                "DEF f(a: Integer) DO IF a DO print(x.y + (2)); ELSE WHILE a DO LET z = 1; END END FOR i IN a DO a = i; END RETURN a; END"));
+        byte[] bytes = flat.serialize();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int records = 20 + 12 * flat.size();
+        for (int offset = records; offset < records + 4 * buffer.getInt(records - 4); offset += 4) {
+            int original = buffer.getInt(offset);
+            for (int value : new int[] {original - 1, original + 1, -2, 14, Integer.MAX_VALUE}) {
+                buffer.putInt(offset, value);
+                try {
+                    FlatAst.deserialize(ByteBuffer.wrap(bytes)).toSource();
+                } catch (IllegalArgumentException e) {
+                    // Rejected.
+                }
+            }
+            buffer.putInt(offset, original);
+        }
+        Assertions.assertEquals(flat.toSource(), FlatAst.deserialize(ByteBuffer.wrap(bytes)).toSource());
+    }
+
+    @Test
+    void testDeepNesting() {
+        int depth = 100_000;
+        String input = "DEF main() DO RETURN " + String.join("", Collections.nCopies(depth, "(")) + "1"
+                + String.join("", Collections.nCopies(depth, ")")) + "; " + String.join("", Collections.nCopies(depth, "IF x DO "))
+                + String.join("", Collections.nCopies(depth, "END ")) + "END";
+        byte[] bytes = FlatAst.parse(TokenBuffer.lex(input)).serialize();
+        Ast.Method method = FlatAst.deserialize(ByteBuffer.wrap(bytes)).getMethod(0);
+        Assertions.assertEquals(depth, ParserTests.depth(((Ast.Stmt.Return) method.getStatements().get(0)).getValue()));
+        Assertions.assertEquals(depth - 1, ParserTests.depth(method.getStatements().get(1)));
+        // Encoding the decoded method again gives the same records.
+        byte[] encoded = FlatAst.of(new Ast.Source(Arrays.asList(), Arrays.asList(method))).serialize();
+        Ast.Method copy = FlatAst.deserialize(ByteBuffer.wrap(encoded)).getMethod(0);
+        Assertions.assertArrayEquals(encoded, FlatAst.of(new Ast.Source(Arrays.asList(), Arrays.asList(copy))).serialize());
+    }
+
+    @Test
+    void testSpans() {
+        String input = "LET x: Integer;\nDEF f() DO\n    RETURN 1;\nEND\n";
+        FlatAst flat = FlatAst.parse(TokenBuffer.lex(input));
+        Assertions.assertEquals(2, flat.size());
+        Assertions.assertEquals("LET x: Integer;", input.substring(flat.getStart(0), flat.getEnd(0)));
+        Assertions.assertEquals("DEF f() DO\n    RETURN 1;\nEND", input.substring(flat.getStart(1), flat.getEnd(1)));
+    }
+
+    @Test
+    void testVisitor() {
+        String input = "LET x: Integer = 1;\nDEF main(): Integer DO\n    RETURN x + 2 * 3;\nEND";
+        FlatAst flat = FlatAst.parse(TokenBuffer.lex(input));
+        Environment.PlcObject result = new Interpreter(new Scope(null)).visit(flat.getSource());
+        Assertions.assertEquals(BigInteger.valueOf(7), result.getValue());
+    }
+
+}
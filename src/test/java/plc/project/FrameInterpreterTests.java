@@ -0,0 +1,112 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+final class FrameInterpreterTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String source, Object expected) {
+        Ast.Source ast = new Parser(TokenBuffer.lex(source)).parseSource();
+        FrameInterpreter interpreter = new FrameInterpreter(new Scope(null));
+        Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Loop",
+                        "LET total: Integer = 0;\n" +
+                        "DEF main(): Integer DO\n" +
+                        "    LET i = 0;\n" +
+                        "    WHILE i < 10 DO\n" +
+                        "        total = total + i;\n" +
+                        "        i = i + 1;\n" +
+                        "    END\n" +
+                        "    RETURN total;\n" +
+                        "END\n",
+                        BigInteger.valueOf(45)
+                ),
+                Arguments.of("Blocks",
+                        "DEF main(): Integer DO\n" +
+                        "    LET x = 1;\n" +
+                        "    IF x == 1 DO LET y = 2; x = x + y; ELSE LET z = 3; x = z; END\n" +
+                        "    WHILE x < 10 DO LET y = x; x = y + 1; END\n" +
+                        "    RETURN x;\n" +
+                        "END\n",
+                        BigInteger.TEN
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n" +
+                        "    IF n < 2 DO RETURN n; END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\n" +
+                        "END\n" +
+                        "DEF main(): Integer DO RETURN fib(10); END\n",
+                        BigInteger.valueOf(55)
+                ),
+                Arguments.of("Field Shadowed By Local",
+                        "LET x: Integer = 1;\n" +
+                        "DEF get(): Integer DO RETURN x; END\n" +
+                        "DEF main(): Integer DO LET x = 5; RETURN x + get(); END\n",
+                        BigInteger.valueOf(6)
+                )
+        );
+    }
+
+    @Test
+    void testParentScope() {
+        Scope scope = new Scope(null);
+        scope.defineVariable("sum", Environment.create(BigInteger.ZERO));
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO\n" +
+                "    FOR num IN list DO sum = sum + num; END\n" +
+                "    RETURN sum;\n" +
+                "END\n")).parseSource();
+        Assertions.assertEquals(BigInteger.TEN, new FrameInterpreter(scope).visit(ast).getValue());
+        Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("sum").getValue().getValue());
+    }
+
+    @Test
+    void testResolve() {
+        Ast.Source ast = new Parser(TokenBuffer.lex("LET total: Integer = 0;\n" +
+                "DEF f(a: Integer, b: Integer) DO\n" +
+                "    IF a < b DO LET x = a; ELSE LET y = b; LET z = y; END\n" +
+                "    LET w = total;\n" +
+                "END\n")).parseSource();
+        Resolver resolver = new Resolver();
+        resolver.visit(ast);
+        Ast.Method method = ast.getMethods().get(0);
+        Ast.Stmt.If stmt = (Ast.Stmt.If) method.getStatements().get(0);
+        Ast.Stmt.Declaration x = (Ast.Stmt.Declaration) stmt.getThenStatements().get(0);
+        Ast.Stmt.Declaration y = (Ast.Stmt.Declaration) stmt.getElseStatements().get(0);
+        Ast.Stmt.Declaration z = (Ast.Stmt.Declaration) stmt.getElseStatements().get(1);
+        Ast.Stmt.Declaration w = (Ast.Stmt.Declaration) method.getStatements().get(1);
+        // The parameters are slots 0 and 1, and the sibling blocks share slots.
+        Assertions.assertEquals(Arrays.asList(2, 2, 3, 2), Arrays.asList(x.getSlot(), y.getSlot(), z.getSlot(), w.getSlot()));
+        Assertions.assertEquals(4, method.getFrameSize());
+
+        Ast.Expr.Access a = (Ast.Expr.Access) x.getValue().get();
+        Ast.Expr.Access total = (Ast.Expr.Access) w.getValue().get();
+        Assertions.assertEquals(Arrays.asList(Resolver.LOCAL, 0), Arrays.asList(a.getDepth(), a.getSlot()));
+        Assertions.assertEquals(Arrays.asList(Resolver.GLOBAL, 0), Arrays.asList(total.getDepth(), total.getSlot()));
+        Assertions.assertEquals(Arrays.asList("total"), resolver.getGlobals());
+    }
+
+    @Test
+    void testRedefinition() {
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF f(a: Integer) DO LET a = 1; END\n")).parseSource();
+        Assertions.assertThrows(RuntimeException.class, () -> new Resolver().visit(ast));
+    }
+
+}
@@ -200,6 +200,35 @@ public class GeneratorTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testDeepNesting(String test, Ast ast, String prefix, String suffix, int length) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        String result = writer.toString();
+        Assertions.assertEquals(length, result.length());
+        Assertions.assertTrue(result.startsWith(prefix), result.substring(0, prefix.length()));
+        Assertions.assertTrue(result.endsWith(suffix), result.substring(result.length() - suffix.length()));
+    }
+
+    private static Stream<Arguments> testDeepNesting() {
+        int depth = 200_000;
+        Ast.Expr expression = new Ast.Expr.Literal(BigInteger.ONE);
+        for (int i = 0; i < depth; i++) {
+            expression = new Ast.Expr.Binary("+", new Ast.Expr.Literal(BigInteger.ONE), expression);
+        }
+        Ast.Expr group = new Ast.Expr.Literal(BigInteger.ONE);
+        for (int i = 0; i < depth; i++) {
+            group = new Ast.Expr.Group(group);
+        }
+        return Stream.of(
+                // 1 + 1 + ... + 1
+                Arguments.of("Binary", expression, "1 + 1 + ", " + 1 + 1", 1 + 4 * depth),
+                // ((...(1)...))
+                Arguments.of("Group", group, "(((", ")))", 1 + 2 * depth)
+        );
+    }
+
     /**
      * Helper function for tests, using a StringWriter as the output stream.
      */
@@ -0,0 +1,33 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times re-analysis with the {@link IncrementalAnalyzer} after one method of
+ * a generated 10k method program is edited, against a full analysis.
+ */
+final class IncrementalAnalyzerBenchmark {
+
+    public static void main(String[] args) {
+        int methods = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Ast.Source source = new Parser(TokenBuffer.lex(ParallelAnalyzerTests.source(methods))).parseSource();
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        analyzer.analyze(source);
+
+        // Alternates between the source and a copy with one method replaced
+        // by a new (equal) object, so each analysis re-checks one method.
+        List<Ast.Method> edited = new ArrayList<>(source.getMethods());
+        int index = methods / 2;
+        String method = ParallelAnalyzerTests.source(index + 1);
+        edited.set(index, new Parser(TokenBuffer.lex(method.substring(method.lastIndexOf("DEF f")))).parseMethod());
+        Ast.Source[] versions = {new Ast.Source(source.getFields(), edited), source};
+        int[] version = {0};
+
+        long incremental = Benchmarks.time(100, 20, () -> analyzer.analyze(versions[version[0]++ % 2]));
+        long full = Benchmarks.time(3, 5, () -> new IncrementalAnalyzer(new Scope(null)).analyze(source));
+        System.out.println("Full analysis: " + full / 1_000_000 + " ms");
+        System.out.println("One method edited: " + String.format("%.2f", incremental / 1e6) + " ms");
+    }
+
+}
@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+public class IncrementalAnalyzerTests {
+
+    private static final String SOURCE = "DEF g(): Integer DO print(1); END\n" +
+            "DEF a() DO print(g()); END\n" +
+            "DEF b() DO LET x: Integer = g(); print(x); END\n" +
+            "DEF c() DO print(2); END\n" +
+            "DEF main(): Integer DO c(); END\n";
+
+    @ParameterizedTest
+    @MethodSource
+    void testEdit(String test, String target, String replacement, int checked) {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        Assertions.assertEquals(5, analyzer.analyze(parser.getSource()));
+        Ast.Source ast = parser.edit(SOURCE.indexOf(target), target.length(), replacement);
+        Assertions.assertEquals(checked, analyzer.analyze(ast));
+
+        Ast.Source expected = new Parser(TokenBuffer.lex(parser.getText())).parseSource();
+        new ParallelAnalyzer(new Scope(null)).analyze(expected);
+        Assertions.assertEquals(expected, ast);
+    }
+
+    private static Stream<Arguments> testEdit() {
+        return Stream.of(
+                Arguments.of("Body", "print(2)", "print(3)", 1),
+                Arguments.of("Body With Dependents", "print(1)", "print(1); print(1)", 1),
+                Arguments.of("Return Type", "DEF c()", "DEF c(): Integer", 2),
+                Arguments.of("Renamed", "DEF a()", "DEF d()", 1),
+                // The edit touches c, so it is parsed (and checked) again.
+                Arguments.of("Added Method", "DEF c()", "DEF d() DO END DEF c()", 2)
+        );
+    }
+
+    @Test
+    void testError() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        analyzer.analyze(parser.getSource());
+
+        // a now fails, and keeps failing while other methods are edited.
+        String text = parser.getText();
+        Ast.Source ast = parser.edit(text.indexOf("print(g())"), "print(g())".length(), "print(g() + 1.0)");
+        Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(ast));
+        String edited = parser.getText();
+        Ast.Source other = parser.edit(edited.indexOf("print(2)"), "print(2)".length(), "print(3)");
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(other));
+        Assertions.assertEquals("Target type does not match the type being used or assigned.", exception.getMessage());
+
+        // Changing g's return type to Decimal fixes a but breaks b.
+        String current = parser.getText();
+        Ast.Source signature = parser.edit(current.indexOf("DEF g(): Integer"), "DEF g(): Integer".length(), "DEF g(): Decimal");
+        Assertions.assertThrows(RuntimeException.class, () -> analyzer.analyze(signature));
+        current = parser.getText();
+        Ast.Source fixed = parser.edit(current.indexOf("x: Integer"), "x: Integer".length(), "x: Decimal");
+        Assertions.assertEquals(1, analyzer.analyze(fixed));
+    }
+
+    @Test
+    void testManyMethods() {
+        String source = ParallelAnalyzerTests.source(1_000);
+        IncrementalParser parser = new IncrementalParser(source);
+        IncrementalAnalyzer analyzer = new IncrementalAnalyzer(new Scope(null));
+        Assertions.assertEquals(1_001, analyzer.analyze(parser.getSource()));
+        int offset = source.indexOf("LET x = 500;") + "LET x = ".length();
+        Assertions.assertEquals(1, analyzer.analyze(parser.edit(offset, 3, "499")));
+        Assertions.assertEquals(0, analyzer.analyze(parser.getSource()));
+    }
+
+}
@@ -0,0 +1,118 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class IncrementalParserTests {
+
+    private static final String SOURCE = String.join("\n",
+            "LET x: Integer = 1;",
+            "LET y: String = \"a string\";",
+            "DEF first() DO",
+            "    print(x + 1);",
+            "END",
+            "DEF second(a: Integer, b: Integer): Integer DO",
+            "    IF a == b DO",
+            "        RETURN a;",
+            "    END",
+            "END",
+            "DEF third() DO",
+            "    WHILE x < 10 DO",
+            "        x = x + 1;",
+            "    END",
+            "END"
+    );
+
+    @ParameterizedTest
+    @MethodSource
+    void testEdit(String test, String before, String after) {
+        int offset = SOURCE.indexOf(before);
+        Assertions.assertTrue(offset >= 0, before);
+        test(new IncrementalParser(SOURCE), offset, before.length(), after);
+    }
+
+    private static Stream<Arguments> testEdit() {
+        return Stream.of(
+                Arguments.of("Rename Identifier", "print", "log"),
+                Arguments.of("Extend Identifier", "x + 1", "xy + 1"),
+                Arguments.of("Join Tokens", "= b", "=b"),
+                Arguments.of("Split Token", "10", "1 + 0"),
+                Arguments.of("Change Literal", "\"a string\"", "\"a longer string\""),
+                Arguments.of("Add Statement", "RETURN a;", "RETURN a; RETURN b;"),
+                Arguments.of("Add Method", "DEF third", "DEF extra() DO END\nDEF third"),
+                Arguments.of("Remove Method", "DEF second(a: Integer, b: Integer): Integer DO\n    IF a == b DO\n        RETURN a;\n    END\nEND\n", ""),
+                Arguments.of("Add Field", "DEF first", "LET z: Integer;\nDEF first"),
+                Arguments.of("Remove Field", "LET y: String = \"a string\";\n", ""),
+                Arguments.of("Field After Method", "DEF first() DO\n    print(x + 1);\nEND\n", "LET z: Integer;\nDEF first() DO END\nLET w: Integer;\n"),
+                Arguments.of("Remove Everything", SOURCE, "")
+        );
+    }
+
+    @Test
+    void testReuse() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        Ast.Source before = parser.getSource();
+        Ast.Source after = parser.edit(SOURCE.indexOf("a == b"), 1, "c");
+        Assertions.assertSame(before.getFields().get(0), after.getFields().get(0));
+        Assertions.assertSame(before.getMethods().get(0), after.getMethods().get(0));
+        Assertions.assertNotSame(before.getMethods().get(1), after.getMethods().get(1));
+        Assertions.assertSame(before.getMethods().get(2), after.getMethods().get(2));
+    }
+
+    @Test
+    void testException() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        Ast.Source before = parser.getSource();
+        Assertions.assertThrows(ParseException.class, () -> parser.edit(SOURCE.indexOf("RETURN a;") + 8, 1, ""));
+        Assertions.assertEquals(SOURCE, parser.getText());
+        Assertions.assertSame(before, parser.getSource());
+        test(parser, SOURCE.indexOf("a == b"), 1, "c");
+    }
+
+    @Test
+    void testRandomEdits() {
+        Random random = new Random(0);
+        String[] snippets = {"x", " ", "\n", ";", "1", "+ 2", "=", "\"", "END", "DEF f() DO ", "LET z: Integer;", ": Integer"};
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        for (int i = 0; i < 1000; i++) {
+            String text = parser.getText();
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(4, text.length() - offset) + 1);
+            String inserted = snippets[random.nextInt(snippets.length)];
+            try {
+                test(parser, offset, removed, inserted);
+            } catch (ParseException e) {
+                Assertions.assertEquals(text, parser.getText());
+            }
+        }
+    }
+
+    /**
+     * Applies the edit and checks the tokens and AST match a full re-lex and
+     * re-parse of the edited text.
+     */
+    private static void test(IncrementalParser parser, int offset, int removed, String inserted) {
+        String text = parser.getText();
+        String edited = text.substring(0, offset) + inserted + text.substring(offset + removed);
+        TokenBuffer tokens;
+        Ast.Source expected;
+        try {
+            tokens = TokenBuffer.lex(edited);
+            expected = new Parser(tokens).parseSource();
+        } catch (ParseException e) {
+            Assertions.assertThrows(ParseException.class, () -> parser.edit(offset, removed, inserted));
+            throw e;
+        }
+        Ast.Source actual = parser.edit(offset, removed, inserted);
+        Assertions.assertEquals(edited, parser.getText());
+        Assertions.assertEquals(tokens.asList(), parser.getTokens().asList());
+        Assertions.assertEquals(expected, actual);
+    }
+
+}
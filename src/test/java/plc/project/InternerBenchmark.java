@@ -0,0 +1,32 @@
+package plc.project;
+
+/**
+ * Compares the retained heap of the parsed AST of a generated 5 MB program
+ * before and after {@link Interner}, and the time taken by the pass.
+ */
+final class InternerBenchmark {
+
+    public static void main(String[] args) {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+        TokenBuffer tokens = TokenBuffer.lex(source);
+        double kb = source.length() / 1024.0;
+
+        long before = Benchmarks.usedMemory();
+        Ast.Source ast = new Parser(tokens).parseSource();
+        long parsed = Benchmarks.usedMemory() - before;
+
+        before = Benchmarks.usedMemory();
+        Ast.Source interned = new Interner().visit(new Parser(tokens).parseSource());
+        long shared = Benchmarks.usedMemory() - before;
+
+        System.out.println("Ast: " + parsed / 1024 + " KB (" + (long) (parsed / kb) + " bytes/source KB)");
+        System.out.println("Interned: " + shared / 1024 + " KB (" + (long) (shared / kb) + " bytes/source KB)");
+        long nanos = Benchmarks.time(3, 5, () -> new Interner().visit(ast));
+        System.out.println("Interner: " + nanos / 1_000_000 + " ms (" + Benchmarks.throughput(source.length(), nanos) + ")");
+        if (!ast.equals(interned)) {
+            throw new AssertionError("Interned AST differs.");
+        }
+    }
+
+}
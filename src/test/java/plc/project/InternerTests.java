@@ -0,0 +1,105 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class InternerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        Ast.Source expected = new Parser(TokenBuffer.lex(input)).parseSource();
+        Ast.Source ast = new Interner().visit(new Parser(TokenBuffer.lex(input)).parseSource());
+        Assertions.assertEquals(expected, ast);
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Fields", "LET x: Integer = 1; LET y: Integer = x + 1; LET z: Integer = x + 1;"),
+                Arguments.of("Blocks", "DEF f(x: Integer) DO IF x DO y(); ELSE z(); END FOR i IN l DO i = i + 1; END WHILE x DO END END"),
+                Arguments.of("Generated", Benchmarks.source(50_000))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testShared(String test, String input, boolean shared) {
+        Ast.Method method = new Interner().visit(new Parser(TokenBuffer.lex(input)).parseMethod());
+        List<Ast.Stmt> statements = method.getStatements();
+        Ast.Expr first = ((Ast.Stmt.Expression) statements.get(0)).getExpression();
+        Ast.Stmt last = statements.get(statements.size() - 1);
+        while (!(last instanceof Ast.Stmt.Expression)) {
+            List<Ast.Stmt> block = last instanceof Ast.Stmt.If ? ((Ast.Stmt.If) last).getThenStatements()
+                    : last instanceof Ast.Stmt.For ? ((Ast.Stmt.For) last).getStatements()
+                    : ((Ast.Stmt.While) last).getStatements();
+            last = block.get(block.size() - 1);
+        }
+        Ast.Expr second = ((Ast.Stmt.Expression) last).getExpression();
+        Ast.Expr firstArgument = ((Ast.Expr.Function) first).getArguments().get(0);
+        Ast.Expr secondArgument = ((Ast.Expr.Function) second).getArguments().get(0);
+        Assertions.assertEquals(firstArgument, secondArgument);
+        Assertions.assertEquals(shared, firstArgument == secondArgument);
+    }
+
+    private static Stream<Arguments> testShared() {
+        return Stream.of(
+                Arguments.of("Literal", "DEF f() DO print(1); print(1); END", true),
+                Arguments.of("Constant Binary", "DEF f() DO print((1 + 2) * 3); print((1 + 2) * 3); END", true),
+                Arguments.of("Access", "DEF f() DO print(obj.field + 1); print(obj.field + 1); END", true),
+                Arguments.of("Nested Block", "DEF f() DO print(x + 1); WHILE c DO print(x + 1); END END", true),
+                Arguments.of("Other Declaration", "DEF f() DO print(x + 1); LET y = 1; print(x + 1); END", true),
+                Arguments.of("Function", "DEF f() DO print(g() + 1); print(g() + 1); END", false),
+                Arguments.of("Redeclared", "DEF f() DO print(x + 1); LET x = 1; print(x + 1); END", false),
+                Arguments.of("Redeclared Receiver", "DEF f() DO print(x.y); LET x = 1; print(x.y); END", false),
+                Arguments.of("Shadowed", "DEF f() DO print(x + 1); IF c DO LET x = 1; print(x + 1); END END", false),
+                Arguments.of("Loop Variable", "DEF f() DO print(i * 2); FOR i IN l DO print(i * 2); END END", false)
+        );
+    }
+
+    @Test
+    void testSiblingBlocks() {
+        String input = "DEF f() DO IF c DO print(x + 1); ELSE print(x + 1); END END";
+        Ast.Method method = new Interner().visit(new Parser(TokenBuffer.lex(input)).parseMethod());
+        Ast.Stmt.If stmt = (Ast.Stmt.If) method.getStatements().get(0);
+        Ast.Expr then = ((Ast.Expr.Function) ((Ast.Stmt.Expression) stmt.getThenStatements().get(0)).getExpression()).getArguments().get(0);
+        Ast.Expr otherwise = ((Ast.Expr.Function) ((Ast.Stmt.Expression) stmt.getElseStatements().get(0)).getExpression()).getArguments().get(0);
+        Assertions.assertNotSame(then, otherwise);
+        Assertions.assertSame(((Ast.Expr.Binary) then).getRight(), ((Ast.Expr.Binary) otherwise).getRight());
+    }
+
+    @Test
+    void testAnalyzer() {
+        String input = "DEF main(): Integer DO\n" +
+                "    LET x = 1;\n" +
+                "    print(x + 1);\n" +
+                "    WHILE TRUE DO\n" +
+                "        LET x = \"string\";\n" +
+                "        print(x + 1);\n" +
+                "    END\n" +
+                "    print(x + 1);\n" +
+                "END";
+        Ast.Method method = new Interner().visit(new Parser(TokenBuffer.lex(input)).parseMethod());
+        new Analyzer(new Scope(null)).visit(method);
+        List<Ast.Stmt> statements = method.getStatements();
+        Ast.Stmt.While loop = (Ast.Stmt.While) statements.get(2);
+        Ast.Expr outer = argument(statements.get(1));
+        Assertions.assertSame(outer, argument(statements.get(3)));
+        Assertions.assertEquals(Environment.Type.INTEGER, outer.getType());
+        Assertions.assertEquals(Environment.Type.STRING, argument(loop.getStatements().get(1)).getType());
+        Assertions.assertEquals(Arrays.asList(Environment.Type.INTEGER, Environment.Type.INTEGER),
+                Arrays.asList(((Ast.Expr.Binary) outer).getLeft().getType(), ((Ast.Expr.Binary) outer).getRight().getType()));
+    }
+
+    private static Ast.Expr argument(Ast.Stmt statement) {
+        return ((Ast.Expr.Function) ((Ast.Stmt.Expression) statement).getExpression()).getArguments().get(0);
+    }
+
+}
@@ -0,0 +1,41 @@
+package plc.project;
+
+/**
+ * Times the {@link Interpreter}, {@link FrameInterpreter},
+ * {@link ClosureInterpreter} and {@link VirtualMachine} on a loop-heavy
+ * program, mostly accesses, assignments and binary expressions, in millions of
+ * loop iterations per second, and the bytes the {@link Interpreter} allocates
+ * per iteration.
+ */
+final class InterpreterBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String source = "LET total: Integer = 0;\n" +
+                "DEF main(): Integer DO\n" +
+                "    LET i = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        total = total + (i - i / 2 * 2) * 3 - 1;\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN total;\n" +
+                "END\n";
+        Ast.Source ast = new Parser(TokenBuffer.lex(source)).parseSource();
+        long nanos = Benchmarks.time(3, 5, () -> new Interpreter(new Scope(null)).visit(ast));
+        System.out.println("Interpreter: " + nanos / 1_000_000 + " ms ("
+                + String.format("%.2f", iterations / (nanos / 1e3)) + " M iterations/s)");
+        System.out.println("Interpreter allocation: " + Benchmarks.allocatedBytes(
+                () -> new Interpreter(new Scope(null)).visit(ast)) / iterations + " bytes/iteration");
+        long frames = Benchmarks.time(3, 5, () -> new FrameInterpreter(new Scope(null)).visit(ast));
+        System.out.println("FrameInterpreter: " + frames / 1_000_000 + " ms ("
+                + String.format("%.2f", iterations / (frames / 1e3)) + " M iterations/s)");
+        long closures = Benchmarks.time(3, 5, () -> new ClosureInterpreter(new Scope(null)).run(ast));
+        System.out.println("ClosureInterpreter: " + closures / 1_000_000 + " ms ("
+                + String.format("%.2f", iterations / (closures / 1e3)) + " M iterations/s)");
+        Bytecode bytecode = new BytecodeCompiler().compile(ast);
+        long machine = Benchmarks.time(3, 5, () -> new VirtualMachine(new Scope(null)).run(bytecode));
+        System.out.println("VirtualMachine: " + machine / 1_000_000 + " ms ("
+                + String.format("%.2f", iterations / (machine / 1e3)) + " M iterations/s)");
+    }
+
+}
@@ -25,7 +25,7 @@ final class InterpreterTests {
         test(ast, expected, new Scope(null));
     }
 
-    private static Stream<Arguments> testSource() {
+    static Stream<Arguments> testSource() {
         return Stream.of(
                 Arguments.of("Main", new Ast.Source(
                         Arrays.asList(),
@@ -225,7 +225,7 @@ final class InterpreterTests {
         test(ast, expected, new Scope(null));
     }
 
-    private static Stream<Arguments> testLiteralExpression() {
+    static Stream<Arguments> testLiteralExpression() {
         return Stream.of(
                 Arguments.of("Nil", new Ast.Expr.Literal(null), Environment.NIL.getValue()), //remember, special case
                 Arguments.of("Boolean", new Ast.Expr.Literal(true), true),
@@ -242,7 +242,7 @@ final class InterpreterTests {
         test(ast, expected, new Scope(null));
     }
 
-    private static Stream<Arguments> testGroupExpression() {
+    static Stream<Arguments> testGroupExpression() {
         return Stream.of(
                 Arguments.of("Literal", new Ast.Expr.Group(new Ast.Expr.Literal(BigInteger.ONE)), BigInteger.ONE),
                 Arguments.of("Binary",
@@ -261,7 +261,7 @@ final class InterpreterTests {
         test(ast, expected, new Scope(null));
     }
 
-    private static Stream<Arguments> testBinaryExpression() {
+    static Stream<Arguments> testBinaryExpression() {
         return Stream.of(
                 Arguments.of("And",
                         new Ast.Expr.Binary("AND",
@@ -333,7 +333,7 @@ final class InterpreterTests {
         test(ast, expected, scope);
     }
 
-    private static Stream<Arguments> testAccessExpression() {
+    static Stream<Arguments> testAccessExpression() {
         return Stream.of(
                 Arguments.of("Variable",
                         new Ast.Expr.Access(Optional.empty(), "variable"),
@@ -357,7 +357,7 @@ final class InterpreterTests {
         test(ast, expected, scope);
     }
 
-    private static Stream<Arguments> testFunctionExpression() {
+    static Stream<Arguments> testFunctionExpression() {
         return Stream.of(
                 Arguments.of("Function",
                         new Ast.Expr.Function(Optional.empty(), "function", Arrays.asList()),
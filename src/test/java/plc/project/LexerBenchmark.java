@@ -0,0 +1,18 @@
+package plc.project;
+
+/**
+ * Measures {@link Lexer#lex()} throughput on a generated 5 MB program. Pass a
+ * size in bytes as the first argument to change the input size.
+ */
+final class LexerBenchmark {
+
+    public static void main(String[] args) {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+        int tokens = new Lexer(source).lex().size();
+        long nanos = Benchmarks.time(3, 5, () -> new Lexer(source).lex());
+        System.out.println("Lexer.lex(): " + source.length() + " chars, " + tokens + " tokens in "
+                + nanos / 1_000_000 + " ms (" + Benchmarks.throughput(source.length(), nanos) + ")");
+    }
+
+}
@@ -171,10 +171,51 @@ public class LexerTests {
                         new Token(Token.Type.OPERATOR, "=", 7),
                         new Token(Token.Type.CHARACTER, "\'s\'", 9),
                         new Token(Token.Type.OPERATOR, ";", 12)
+                )),
+                Arguments.of("Multiple Lines", "LET x = -1;\r\nx = x - 1.5;", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "LET", 0),
+                        new Token(Token.Type.IDENTIFIER, "x", 4),
+                        new Token(Token.Type.OPERATOR, "=", 6),
+                        new Token(Token.Type.INTEGER, "-1", 8),
+                        new Token(Token.Type.OPERATOR, ";", 10),
+                        new Token(Token.Type.IDENTIFIER, "x", 13),
+                        new Token(Token.Type.OPERATOR, "=", 15),
+                        new Token(Token.Type.IDENTIFIER, "x", 17),
+                        new Token(Token.Type.OPERATOR, "-", 19),
+                        new Token(Token.Type.DECIMAL, "1.5", 21),
+                        new Token(Token.Type.OPERATOR, ";", 24)
                 ))
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testKind(String test, String input, Token.Kind expected) {
+        Assertions.assertEquals(expected, new Lexer(input).lexToken().getKind());
+        Assertions.assertEquals(expected, TokenBuffer.lex(input).getKind(0));
+    }
+
+    private static Stream<Arguments> testKind() {
+        return Stream.of(
+                Arguments.of("Keyword", "LET", Token.Kind.LET),
+                Arguments.of("Lowercase Keyword", "let", Token.Kind.NONE),
+                Arguments.of("Keyword Prefix", "LETTER", Token.Kind.NONE),
+                Arguments.of("Identifier", "name", Token.Kind.NONE),
+                Arguments.of("Operator", "<=", Token.Kind.LESS_EQUAL),
+                Arguments.of("Single Operator", ";", Token.Kind.SEMICOLON),
+                Arguments.of("Other Operator", "$", Token.Kind.NONE),
+                Arguments.of("String", "\"LET\"", Token.Kind.NONE)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("testExamples")
+    void testBuffer(String test, String input, List<Token> expected) {
+        TokenBuffer buffer = TokenBuffer.lex(input);
+        Assertions.assertEquals(expected, buffer.asList());
+        Assertions.assertEquals(expected, TokenBuffer.of(expected).asList());
+    }
+
     @Test
     void testException() {
         ParseException exception = Assertions.assertThrows(ParseException.class,
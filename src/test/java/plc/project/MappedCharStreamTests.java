@@ -0,0 +1,62 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+final class MappedCharStreamTests {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @MethodSource
+    void testLex(String test, String input, long regionSize, int windowSize) throws IOException {
+        Path path = Files.write(directory.resolve("source.plc"), input.getBytes(StandardCharsets.UTF_8));
+        try (MappedCharStream chars = new MappedCharStream(path, StandardCharsets.UTF_8, regionSize, windowSize)) {
+            Assertions.assertEquals(new Lexer(input).lex(), new Lexer(chars).lex());
+        }
+    }
+
+    private static Stream<Arguments> testLex() {
+        String source = Benchmarks.source(4096);
+        return Stream.of(
+                Arguments.of("Empty", "", MappedCharStream.REGION_SIZE, MappedCharStream.WINDOW_SIZE),
+                Arguments.of("Default Sizes", source, MappedCharStream.REGION_SIZE, MappedCharStream.WINDOW_SIZE),
+                Arguments.of("Small Windows", source, 1024, 3),
+                Arguments.of("Split Characters", "LET s: String = \"\u00e9\u00e8\u20ac\";", 7, 4)
+        );
+    }
+
+    @Test
+    void testSurrogatePairs() throws IOException {
+        // Moves a 4-byte character across the window boundaries, so that it
+        // is decoded when the window has a single char free.
+        for (int windowSize = 2; windowSize <= 8; windowSize++) {
+            for (int padding = 0; padding < 2 * windowSize; padding++) {
+                String input = "x = \"" + String.join("", Collections.nCopies(padding, "a")) + "\uD83D\uDE00\";";
+                testLex("Surrogate Pair", input, 1024, windowSize);
+            }
+        }
+    }
+
+    @Test
+    void testException() throws IOException {
+        Path path = Files.write(directory.resolve("source.plc"), "x = 1;\n\"unterminated".getBytes(StandardCharsets.UTF_8));
+        try (MappedCharStream chars = new MappedCharStream(path, StandardCharsets.UTF_8, 5, 2)) {
+            ParseException exception = Assertions.assertThrows(ParseException.class, () -> new Lexer(chars).lex());
+            Assertions.assertEquals(20, exception.getOffset());
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class ParallelAnalyzerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        // The sequential analyzer looks up main before declaring any methods.
+        Scope scope = new Scope(null);
+        scope.defineFunction("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL);
+        Ast.Source expected = new Parser(TokenBuffer.lex(input)).parseSource();
+        new Analyzer(scope).visit(expected);
+
+        Ast.Source ast = new Parser(TokenBuffer.lex(input)).parseSource();
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(new Scope(null), new ForkJoinPool(4));
+        analyzer.analyze(ast);
+        Assertions.assertEquals(expected, ast);
+        for (Ast.Method method : ast.getMethods()) {
+            Assertions.assertEquals(method.getFunction(), analyzer.getScope().lookupFunction(method.getName(), 0));
+        }
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO print(1); END"),
+                Arguments.of("Statements", "DEF f() DO LET x = 1; WHILE x < 10 DO x = x + 1; END IF x == 10 DO print(x); END END DEF main(): Integer DO f(); END"),
+                Arguments.of("Many Methods", source(10 * ParallelAnalyzer.THRESHOLD))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testException(String test, String input, String message) {
+        Ast.Source ast = new Parser(TokenBuffer.lex(input)).parseSource();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> new ParallelAnalyzer(new Scope(null), new ForkJoinPool(4)).analyze(ast));
+        Assertions.assertEquals(message, exception.getMessage());
+    }
+
+    private static Stream<Arguments> testException() {
+        return Stream.of(
+                Arguments.of("Missing Main", "DEF f() DO END", "The function main/0 is not defined in this scope."),
+                Arguments.of("Main Return Type", "DEF main() DO END", "Main needs to return an Integer type."),
+                Arguments.of("Undefined Function", "DEF main(): Integer DO g(); END", "The function g/0 is not defined in this scope."),
+                Arguments.of("First Error", source(40) + "DEF a() DO IF 1 DO print(1); END END DEF b() DO x; END",
+                        "Condition is not of type boolean.")
+        );
+    }
+
+    @Test
+    void testForwardReference() {
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO f(); END DEF f() DO print(1); END")).parseSource();
+        ParallelAnalyzer analyzer = new ParallelAnalyzer(new Scope(null));
+        analyzer.analyze(ast);
+        Ast.Expr call = ((Ast.Stmt.Expression) ast.getMethods().get(0).getStatements().get(0)).getExpression();
+        Assertions.assertEquals(Environment.Type.NIL, call.getType());
+    }
+
+    /**
+     * Generates a program the analyzer accepts with {@code methods} methods
+     * plus {@code main}.
+     */
+    static String source(int methods) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < methods; i++) {
+            builder.append("DEF f").append(i).append("(): Integer DO\n")
+                    .append("    LET x = ").append(i).append(";\n")
+                    .append("    WHILE x < 100 DO\n")
+                    .append("        x = x + 1;\n")
+                    .append("    END\n")
+                    .append("    IF x == 100 AND TRUE DO\n")
+                    .append("        print(x * 2 - 1);\n")
+                    .append("    END\n")
+                    .append("END\n");
+        }
+        return builder.append("DEF main(): Integer DO print(\"main\"); END\n").toString();
+    }
+
+}
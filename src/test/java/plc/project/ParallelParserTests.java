@@ -0,0 +1,87 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class ParallelParserTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        test(input);
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Fields", "LET x: Integer = 1; LET y: Decimal;"),
+                Arguments.of("Single Method", "DEF main() DO RETURN 0; END"),
+                Arguments.of("Field And Single Method", "LET x: Integer; DEF main() DO END"),
+                Arguments.of("Field And Trailing Tokens", "LET x: Integer; x DEF f() DO END"),
+                Arguments.of("Methods", "DEF f() DO END DEF g(): Integer DO RETURN 1; END"),
+                Arguments.of("Nested Blocks", "DEF f() DO IF x DO WHILE y DO END ELSE FOR i IN list DO END END END DEF g() DO END"),
+                Arguments.of("Field After Method", "LET x: Integer; DEF f() DO END LET y: Integer; DEF g() DO END"),
+                Arguments.of("Trailing Tokens", "DEF f() DO END x DEF g() DO END"),
+                Arguments.of("Extra END", "DEF f() DO END END DEF g() DO END"),
+                Arguments.of("Generated", Benchmarks.source(100_000))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testException(String test, String input, int index) {
+        ParseException sequential = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(TokenBuffer.lex(input)).parseSource());
+        ParseException parallel = Assertions.assertThrows(ParseException.class,
+                () -> new ParallelParser(TokenBuffer.lex(input), new ForkJoinPool(4)).parseSource());
+        Assertions.assertEquals(index, sequential.getIndex());
+        Assertions.assertEquals(sequential.getIndex(), parallel.getIndex());
+        Assertions.assertEquals(sequential.getMessage(), parallel.getMessage());
+    }
+
+    private static Stream<Arguments> testException() {
+        return Stream.of(
+                Arguments.of("Field", "LET x = 1; DEF f() DO END", 4),
+                Arguments.of("Earliest Method", "DEF f() DO END DEF g( DO END DEF h() DO x = ; END", 22),
+                Arguments.of("Missing END", "DEF f() DO IF x DO END DEF g() DO END", 23)
+        );
+    }
+
+    @Test
+    void testManyMethods() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10 * ParallelParser.THRESHOLD; i++) {
+            builder.append("DEF f").append(i).append("() DO print(").append(i).append("); END\n");
+        }
+        test(builder.toString());
+    }
+
+    @Test
+    void testParallelResults() {
+        // Every method is found by the pre-scan, so none of the tasks'
+        // results should be thrown away and parsed again.
+        StringBuilder builder = new StringBuilder("LET x: Integer = 1;\n");
+        for (int i = 0; i < 3 * ParallelParser.THRESHOLD; i++) {
+            builder.append("DEF f").append(i).append("() DO IF x DO print(").append(i).append("); END END\n");
+        }
+        for (String input : new String[] {"DEF main() DO END", builder.toString()}) {
+            TokenBuffer tokens = TokenBuffer.lex(input);
+            ParallelParser parser = new ParallelParser(tokens, new ForkJoinPool(4));
+            Assertions.assertEquals(new Parser(tokens).parseSource(), parser.parseSource());
+            Assertions.assertEquals(0, parser.getSequentialMethods());
+        }
+    }
+
+    private static void test(String input) {
+        TokenBuffer tokens = TokenBuffer.lex(input);
+        Ast.Source expected = new Parser(tokens).parseSource();
+        Assertions.assertEquals(expected, new ParallelParser(tokens, new ForkJoinPool(4)).parseSource());
+    }
+
+}
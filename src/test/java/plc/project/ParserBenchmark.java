@@ -0,0 +1,34 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link Parser#parseSource()} and {@link ParallelParser#parseSource()}
+ * throughput on a generated 5 MB program, parsing from a pre-lexed
+ * {@link TokenBuffer}, and {@link Parser#parseSource(List)} on the same program
+ * with a syntax error in every method.
+ */
+final class ParserBenchmark {
+
+    public static void main(String[] args) {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+        TokenBuffer tokens = TokenBuffer.lex(source);
+        int methods = new Parser(tokens).parseSource().getMethods().size();
+        long nanos = Benchmarks.time(5, 10, () -> new Parser(tokens).parseSource());
+        System.out.println("Parser.parseSource(): " + tokens.size() + " tokens, " + methods + " methods in "
+                + nanos / 1_000_000 + " ms (" + (long) (tokens.size() / (nanos / 1e9)) + " tokens/s)");
+        long parallel = Benchmarks.time(5, 10, () -> new ParallelParser(tokens).parseSource());
+        System.out.println("ParallelParser.parseSource(): " + parallel / 1_000_000 + " ms ("
+                + (long) (tokens.size() / (parallel / 1e9)) + " tokens/s, "
+                + Runtime.getRuntime().availableProcessors() + " processors)");
+        TokenBuffer broken = TokenBuffer.lex(source.replace("RETURN x - ", "RETURN x - ;"));
+        List<ParseException> diagnostics = new ArrayList<>();
+        new Parser(broken).parseSource(diagnostics);
+        long recovering = Benchmarks.time(5, 10, () -> new Parser(broken).parseSource(new ArrayList<>()));
+        System.out.println("Parser.parseSource(diagnostics): " + diagnostics.size() + " errors in "
+                + recovering / 1_000_000 + " ms (" + (long) (broken.size() / (recovering / 1e9)) + " tokens/s)");
+    }
+
+}
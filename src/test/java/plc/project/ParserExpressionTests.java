@@ -240,6 +240,50 @@ final class ParserExpressionTests {
                                 new Ast.Expr.Access(Optional.empty(), "expr1"),
                                 new Ast.Expr.Access(Optional.empty(), "expr2")
                         )
+                ),
+                Arguments.of("Left Associative",
+                        Arrays.asList(
+                                // expr1 - expr2 - expr3
+                                new Token(Token.Type.IDENTIFIER, "expr1", 0),
+                                new Token(Token.Type.OPERATOR, "-", 6),
+                                new Token(Token.Type.IDENTIFIER, "expr2", 8),
+                                new Token(Token.Type.OPERATOR, "-", 14),
+                                new Token(Token.Type.IDENTIFIER, "expr3", 16)
+                        ),
+                        new Ast.Expr.Binary("-",
+                                new Ast.Expr.Binary("-",
+                                        new Ast.Expr.Access(Optional.empty(), "expr1"),
+                                        new Ast.Expr.Access(Optional.empty(), "expr2")
+                                ),
+                                new Ast.Expr.Access(Optional.empty(), "expr3")
+                        )
+                ),
+                Arguments.of("Mixed Precedence",
+                        Arrays.asList(
+                                // expr1 + expr2 * expr3 == expr4 OR expr5
+                                new Token(Token.Type.IDENTIFIER, "expr1", 0),
+                                new Token(Token.Type.OPERATOR, "+", 6),
+                                new Token(Token.Type.IDENTIFIER, "expr2", 8),
+                                new Token(Token.Type.OPERATOR, "*", 14),
+                                new Token(Token.Type.IDENTIFIER, "expr3", 16),
+                                new Token(Token.Type.OPERATOR, "==", 22),
+                                new Token(Token.Type.IDENTIFIER, "expr4", 25),
+                                new Token(Token.Type.IDENTIFIER, "OR", 31),
+                                new Token(Token.Type.IDENTIFIER, "expr5", 34)
+                        ),
+                        new Ast.Expr.Binary("OR",
+                                new Ast.Expr.Binary("==",
+                                        new Ast.Expr.Binary("+",
+                                                new Ast.Expr.Access(Optional.empty(), "expr1"),
+                                                new Ast.Expr.Binary("*",
+                                                        new Ast.Expr.Access(Optional.empty(), "expr2"),
+                                                        new Ast.Expr.Access(Optional.empty(), "expr3")
+                                                )
+                                        ),
+                                        new Ast.Expr.Access(Optional.empty(), "expr4")
+                                ),
+                                new Ast.Expr.Access(Optional.empty(), "expr5")
+                        )
                 )
         );
     }
@@ -313,6 +357,26 @@ final class ParserExpressionTests {
                                 new Token(Token.Type.OPERATOR, ")", 11)
                         ),
                         new Ast.Expr.Function(Optional.of(new Ast.Expr.Access(Optional.empty(), "obj")), "method", Arrays.asList())
+                ),
+                Arguments.of("Method Call Arguments",
+                        Arrays.asList(
+                                //obj.method(expr1, expr2, expr3)
+                                new Token(Token.Type.IDENTIFIER, "obj", 0),
+                                new Token(Token.Type.OPERATOR, ".", 3),
+                                new Token(Token.Type.IDENTIFIER, "method", 4),
+                                new Token(Token.Type.OPERATOR, "(", 10),
+                                new Token(Token.Type.IDENTIFIER, "expr1", 11),
+                                new Token(Token.Type.OPERATOR, ",", 16),
+                                new Token(Token.Type.IDENTIFIER, "expr2", 18),
+                                new Token(Token.Type.OPERATOR, ",", 23),
+                                new Token(Token.Type.IDENTIFIER, "expr3", 25),
+                                new Token(Token.Type.OPERATOR, ")", 30)
+                        ),
+                        new Ast.Expr.Function(Optional.of(new Ast.Expr.Access(Optional.empty(), "obj")), "method", Arrays.asList(
+                                new Ast.Expr.Access(Optional.empty(), "expr1"),
+                                new Ast.Expr.Access(Optional.empty(), "expr2"),
+                                new Ast.Expr.Access(Optional.empty(), "expr3")
+                        ))
                 )
         );
     }
@@ -320,14 +384,18 @@ final class ParserExpressionTests {
  
     /**
      * Standard test function. If expected is null, a ParseException is expected
-     * to be thrown (not used in the provided tests).
+     * to be thrown (not used in the provided tests). Also checks the explicit
+     * stack mode gives the same result.
      */
     private static <T extends Ast> void test(List<Token> tokens, T expected, Function<Parser, T> function) {
         Parser parser = new Parser(tokens);
+        Parser stack = new Parser(TokenBuffer.of(tokens), 0, 0);
         if (expected != null) {
             Assertions.assertEquals(expected, function.apply(parser));
+            Assertions.assertEquals(expected, function.apply(stack));
         } else {
             Assertions.assertThrows(ParseException.class, () -> function.apply(parser));
+            Assertions.assertThrows(ParseException.class, () -> function.apply(stack));
         }
     }
 
@@ -8,10 +8,12 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -552,16 +554,177 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testRecovery(String test, String input, String expected, List<String> errors) {
+        TokenBuffer tokens = TokenBuffer.lex(input);
+        List<ParseException> diagnostics = new ArrayList<>();
+        Ast.Source source = new Parser(tokens).parseSource(diagnostics);
+        Assertions.assertEquals(new Parser(TokenBuffer.lex(expected)).parseSource(), source);
+        Assertions.assertEquals(errors, diagnostics.stream().map(ParseException::getMessage).collect(Collectors.toList()));
+        if (errors.isEmpty()) {
+            Assertions.assertEquals(source, new Parser(tokens).parseSource());
+        } else if (errors.get(0).equals("Expected DEF") || errors.get(0).equals("Field after method")) {
+            // The strict parser stops quietly at the first unexpected
+            // top-level token.
+            Assertions.assertDoesNotThrow(() -> new Parser(tokens).parseSource());
+        } else {
+            Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource());
+        }
+        for (int i = 1; i < diagnostics.size(); i++) {
+            Assertions.assertTrue(diagnostics.get(i - 1).getIndex() <= diagnostics.get(i).getIndex());
+        }
+    }
+
+    private static Stream<Arguments> testRecovery() {
+        return Stream.of(
+                Arguments.of("No Errors",
+                        "LET x: Integer; DEF f() DO IF x DO y(); END END",
+                        "LET x: Integer; DEF f() DO IF x DO y(); END END", Arrays.asList()),
+                Arguments.of("Statement",
+                        "DEF f() DO x = ; y(); END DEF g() DO z(); END",
+                        "DEF f() DO y(); END DEF g() DO z(); END", Arrays.asList("Unexpected Primary Expression")),
+                Arguments.of("Nested Statement",
+                        "DEF f() DO IF x DO y = ; z(); ELSE w(); END v(); END",
+                        "DEF f() DO IF x DO z(); ELSE w(); END v(); END", Arrays.asList("Unexpected Primary Expression")),
+                Arguments.of("Multiple Errors",
+                        "DEF f() DO x = ; y(); END DEF g() DO (z; w(); END DEF h() DO RETURN 1 v(); END",
+                        "DEF f() DO y(); END DEF g() DO w(); END DEF h() DO END", Arrays.asList("Unexpected Primary Expression", "Missing Closing Parenthesis", "Missing Semicolon")),
+                Arguments.of("Skipped Block",
+                        "DEF f() DO IF x y DO z(); END w(); END",
+                        "DEF f() DO w(); END", Arrays.asList("Missing DO String")),
+                Arguments.of("Field",
+                        "LET x = 1; LET y: Integer; DEF f() DO END",
+                        "LET y: Integer; DEF f() DO END", Arrays.asList("Missing Colon")),
+                Arguments.of("Method Header",
+                        "DEF f(x y) DO x(); END DEF g() DO END",
+                        "DEF g() DO END", Arrays.asList("Missing Colon")),
+                Arguments.of("Missing END",
+                        "DEF f() DO x(); DEF g() DO y(); END",
+                        "DEF g() DO y(); END", Arrays.asList("Missing END")),
+                Arguments.of("Missing END At End",
+                        "DEF f() DO WHILE x DO y();",
+                        "", Arrays.asList("Missing END", "Missing END")),
+                Arguments.of("Top-Level Statement",
+                        "LET x: Integer = 1; 5; DEF main(): Integer DO RETURN 0; END",
+                        "LET x: Integer = 1; DEF main(): Integer DO RETURN 0; END", Arrays.asList("Expected DEF")),
+                Arguments.of("Field After Method",
+                        "DEF f() DO END LET x: Integer = 1; DEF main(): Integer DO RETURN 0; END",
+                        "DEF f() DO END DEF main(): Integer DO RETURN 0; END", Arrays.asList("Field after method")),
+                Arguments.of("Extra END",
+                        "DEF f() DO x = 1; END END DEF main(): Integer DO RETURN 0; END",
+                        "DEF f() DO x = 1; END DEF main(): Integer DO RETURN 0; END", Arrays.asList("Expected DEF"))
+        );
+    }
+
+    @Test
+    void testDeepRecovery() {
+        // Errors in blocks nested past MAX_DEPTH are handled by the explicit
+        // stack parser, which must recover the same way.
+        int depth = 2 * Parser.MAX_DEPTH;
+        StringBuilder input = new StringBuilder("DEF f() DO ");
+        StringBuilder expected = new StringBuilder("DEF f() DO ");
+        for (int i = 0; i < depth; i++) {
+            input.append("IF x DO ");
+            expected.append("IF x DO ");
+            if (i == depth - 20) {
+                input.append("y = ; z(); ");
+                expected.append("z(); ");
+            } else if (i == depth - 10) {
+                input.append("(w; v(); ");
+                expected.append("v(); ");
+            }
+        }
+        input.append("u = ; ");
+        for (int i = 0; i < depth; i++) {
+            input.append("END ");
+            expected.append("END ");
+        }
+        input.append("END DEF g() DO t(); END");
+        expected.append("END DEF g() DO t(); END");
+        TokenBuffer tokens = TokenBuffer.lex(input.toString());
+        List<ParseException> diagnostics = new ArrayList<>();
+        Ast.Source source = new Parser(tokens).parseSource(diagnostics);
+        Assertions.assertEquals(new Parser(TokenBuffer.lex(expected.toString())).parseSource(), source);
+        Assertions.assertEquals(Arrays.asList("Unexpected Primary Expression", "Missing Closing Parenthesis", "Unexpected Primary Expression"),
+                diagnostics.stream().map(ParseException::getMessage).collect(Collectors.toList()));
+        Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testDeepNesting(String test, String prefix, String middle, String suffix, String end) {
+        int depth = 200_000;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            builder.append(prefix);
+        builder.append(middle);
+        for (int i = 0; i < depth; i++)
+            builder.append(suffix);
+        builder.append(end);
+        Ast.Stmt stmt = new Parser(TokenBuffer.lex(builder.toString())).parseStatement();
+        Assertions.assertEquals(depth, depth(stmt));
+    }
+
+    private static Stream<Arguments> testDeepNesting() {
+        return Stream.of(
+                Arguments.of("Groups", "(", "x", ")", ";"),
+                Arguments.of("Functions", "f(", "x", ")", ";"),
+                Arguments.of("Method Calls", "x.f(1, ", "x", ")", ";"),
+                Arguments.of("Binary", "1 + (", "x", ")", ";"),
+                Arguments.of("If", "IF x DO ", "f();", " END", ""),
+                Arguments.of("While", "WHILE x DO ", "f();", " END", ""),
+                Arguments.of("For", "FOR i IN x DO ", "f();", " END", ""),
+                Arguments.of("Mixed", "IF (x) DO RETURN (1); ", "f();", " ELSE END", "")
+        );
+    }
+
+    /**
+     * Counts how many levels of nesting there are by following the innermost
+     * nested node, iteratively, since recursive equality checks of the whole
+     * tree would overflow the stack themselves.
+     */
+    static int depth(Ast ast) {
+        int depth = 0;
+        while (true) {
+            if (ast instanceof Ast.Stmt.Expression)
+                ast = ((Ast.Stmt.Expression) ast).getExpression();
+            if (ast instanceof Ast.Expr.Binary)
+                ast = ((Ast.Expr.Binary) ast).getRight();
+            List<? extends Ast> children;
+            if (ast instanceof Ast.Expr.Group)
+                children = Arrays.asList(((Ast.Expr.Group) ast).getExpression());
+            else if (ast instanceof Ast.Expr.Function)
+                children = ((Ast.Expr.Function) ast).getArguments();
+            else if (ast instanceof Ast.Stmt.If)
+                children = ((Ast.Stmt.If) ast).getThenStatements();
+            else if (ast instanceof Ast.Stmt.While)
+                children = ((Ast.Stmt.While) ast).getStatements();
+            else if (ast instanceof Ast.Stmt.For)
+                children = ((Ast.Stmt.For) ast).getStatements();
+            else
+                return depth;
+            if (children.isEmpty())
+                return depth;
+            ast = children.get(children.size() - 1);
+            depth++;
+        }
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
-     * to be thrown (not used in the provided tests).
+     * to be thrown (not used in the provided tests). Also checks the explicit
+     * stack mode gives the same result.
      */
     private static <T extends Ast> void test(List<Token> tokens, T expected, Function<Parser, T> function) {
         Parser parser = new Parser(tokens);
+        Parser stack = new Parser(TokenBuffer.of(tokens), 0, 0);
         if (expected != null) {
             Assertions.assertEquals(expected, function.apply(parser));
+            Assertions.assertEquals(expected, function.apply(stack));
         } else {
             Assertions.assertThrows(ParseException.class, () -> function.apply(parser));
+            Assertions.assertThrows(ParseException.class, () -> function.apply(stack));
         }
     }
 
@@ -0,0 +1,54 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+
+final class ScopeTests {
+
+    @Test
+    void testFunctionArities() {
+        Scope scope = new Scope(null);
+        scope.defineFunction("f", 2, args -> Environment.create("f/2"));
+        scope.defineFunction("f", 0, args -> Environment.create("f/0"));
+        Assertions.assertEquals("f/0", scope.lookupFunction("f", 0).invoke(Arrays.asList()).getValue());
+        Assertions.assertEquals(2, scope.lookupFunction("f", 2).getParameterTypes().size());
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> scope.lookupFunction("f", 1));
+        Assertions.assertEquals("The function f/1 is not defined in this scope.", exception.getMessage());
+        Assertions.assertThrows(RuntimeException.class, () -> scope.lookupFunction("f", 3));
+        Assertions.assertThrows(RuntimeException.class, () -> scope.defineFunction("f", 2, args -> Environment.NIL));
+    }
+
+    @Test
+    void testFunctionParents() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 1, args -> Environment.create("parent"));
+        parent.defineFunction("g", 0, args -> Environment.create("parent"));
+        Scope child = new Scope(new Scope(parent));
+        child.defineFunction("f", 0, args -> Environment.create("child"));
+        child.defineFunction("g", 0, args -> Environment.create("child"));
+        Assertions.assertSame(parent.lookupFunction("f", 1), child.lookupFunction("f", 1));
+        Assertions.assertEquals("child", child.lookupFunction("g", 0).invoke(Arrays.asList()).getValue());
+        Assertions.assertEquals("parent", parent.lookupFunction("g", 0).invoke(Arrays.asList()).getValue());
+    }
+
+    @Test
+    void testShadowedFunction() {
+        // A call is looked up each time it runs, so a function defined in an
+        // inner scope after the first call shadows the outer one.
+        int[] calls = {0};
+        Scope scope = new Scope(null);
+        scope.defineFunction("count", 0, args -> Environment.create(BigInteger.valueOf(++calls[0])));
+        Interpreter interpreter = new Interpreter(scope);
+        Ast.Expr.Function call = new Ast.Expr.Function(Optional.empty(), "count", Arrays.asList());
+        Assertions.assertEquals(BigInteger.ONE, interpreter.visit(call).getValue());
+        Assertions.assertEquals(BigInteger.valueOf(2), interpreter.visit(call).getValue());
+        interpreter.getScope().defineFunction("count", 0, args -> Environment.create(BigInteger.ZERO));
+        Assertions.assertEquals(BigInteger.ZERO, interpreter.visit(call).getValue());
+        Assertions.assertEquals(2, calls[0]);
+    }
+
+}
@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class StreamingLexerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testBufferSize(String test, int bufferSize) {
+        String input = Benchmarks.source(4096);
+        List<Token> expected = new Lexer(input).lex();
+        StreamingLexer lexer = new StreamingLexer(new StringReader(input), bufferSize);
+        Assertions.assertEquals(expected, lexer.stream().collect(Collectors.toList()));
+    }
+
+    private static Stream<Arguments> testBufferSize() {
+        return Stream.of(
+                Arguments.of("Single Character", 1),
+                Arguments.of("Shorter Than Tokens", 5),
+                Arguments.of("Default", StreamingLexer.DEFAULT_BUFFER_SIZE)
+        );
+    }
+
+    @Test
+    void testWhitespace() {
+        String input = "x" + String.join("", Collections.nCopies(100_000, " \n")) + "y";
+        StreamingLexer lexer = new StreamingLexer(new StringReader(input), 16);
+        Assertions.assertEquals(new Lexer(input).lex(), lexer.stream().collect(Collectors.toList()));
+        Assertions.assertEquals(16, lexer.getBufferSize());
+    }
+
+    @Test
+    void testChannel() {
+        String input = "LET name: String = \"Go Gators!\";";
+        StreamingLexer lexer = new StreamingLexer(Channels.newChannel(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))), StandardCharsets.UTF_8);
+        Assertions.assertEquals(new Lexer(input).lex(), lexer.stream().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testException() {
+        StreamingLexer lexer = new StreamingLexer(new StringReader("x = 1;\n\"unterminated"), 4);
+        for (int i = 0; i < 4; i++) {
+            lexer.next();
+        }
+        ParseException exception = Assertions.assertThrows(ParseException.class, lexer::hasNext);
+        Assertions.assertEquals(20, exception.getIndex());
+    }
+
+}
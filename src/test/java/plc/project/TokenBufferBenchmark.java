@@ -0,0 +1,29 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * Compares the retained heap of {@link Lexer#lex()} against a packed
+ * {@link TokenBuffer}, and the time to parse from each of them.
+ */
+final class TokenBufferBenchmark {
+
+    public static void main(String[] args) {
+        int bytes = args.length > 0 ? Integer.parseInt(args[0]) : 5 << 20;
+        String source = Benchmarks.source(bytes);
+
+        long before = Benchmarks.usedMemory();
+        List<Token> list = new Lexer(source).lex();
+        long listBytes = Benchmarks.usedMemory() - before;
+        before = Benchmarks.usedMemory();
+        TokenBuffer buffer = TokenBuffer.lex(source);
+        long bufferBytes = Benchmarks.usedMemory() - before;
+
+        System.out.println("List<Token>: " + list.size() + " tokens, " + listBytes / list.size() + " bytes/token");
+        System.out.println("TokenBuffer: " + buffer.size() + " tokens, " + bufferBytes / buffer.size() + " bytes/token");
+
+        long nanos = Benchmarks.time(3, 5, () -> TokenBuffer.lex(source));
+        System.out.println("TokenBuffer.lex(): " + nanos / 1_000_000 + " ms (" + Benchmarks.throughput(source.length(), nanos) + ")");
+    }
+
+}
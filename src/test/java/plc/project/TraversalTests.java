@@ -0,0 +1,155 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public class TraversalTests {
+
+    @Test
+    void testOrder() {
+        // f(x + 1, y)
+        Ast.Expr ast = new Ast.Expr.Function(Optional.empty(), "f", Arrays.asList(
+                new Ast.Expr.Binary("+", new Ast.Expr.Access(Optional.empty(), "x"), new Ast.Expr.Literal(1)),
+                new Ast.Expr.Access(Optional.empty(), "y")
+        ));
+        Recorder recorder = new Recorder();
+        recorder.visit(ast);
+        Assertions.assertEquals(Arrays.asList("enter f", "enter +", "enter x", "exit x", "enter 1", "exit 1",
+                "exit +", "enter y", "exit y", "exit f"), recorder.events);
+    }
+
+    @Test
+    void testDirectCall() {
+        // Outside of a traversal, scheduled work runs immediately.
+        Ast.Expr.Binary ast = new Ast.Expr.Binary("+", new Ast.Expr.Literal(1), new Ast.Expr.Literal(2));
+        Recorder recorder = new Recorder();
+        recorder.visit(ast);
+        Assertions.assertEquals(Arrays.asList("enter +", "enter 1", "exit 1", "enter 2", "exit 2", "exit +"), recorder.events);
+    }
+
+    @Test
+    void testException() {
+        Ast.Expr ast = new Ast.Expr.Binary("+", new Ast.Expr.Literal(1), new Ast.Expr.Access(Optional.empty(), "error"));
+        Recorder recorder = new Recorder();
+        Assertions.assertThrows(IllegalStateException.class, () -> recorder.visit(ast));
+        recorder.events.clear();
+        recorder.visit(new Ast.Expr.Literal(1));
+        Assertions.assertEquals(Arrays.asList("enter 1", "exit 1"), recorder.events);
+    }
+
+    @Test
+    void testDeepNesting() {
+        Ast.Expr ast = new Ast.Expr.Literal(0);
+        for (int i = 0; i < 200_000; i++) {
+            ast = new Ast.Expr.Group(ast);
+        }
+        Recorder recorder = new Recorder();
+        recorder.visit(ast);
+        Assertions.assertEquals(2 * 200_001, recorder.events.size());
+        Assertions.assertEquals("enter 0", recorder.events.get(200_000));
+    }
+
+    /**
+     * Records the pre-order and post-order hooks of each expression.
+     */
+    private static final class Recorder extends Traversal {
+
+        private final List<String> events = new ArrayList<>();
+
+        private void record(String name, List<? extends Ast> children) {
+            events.add("enter " + name);
+            if (name.equals("error")) {
+                throw new IllegalStateException();
+            }
+            visit(children);
+            then(() -> events.add("exit " + name));
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            record(String.valueOf(ast.getLiteral()), Arrays.asList());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            record("()", Arrays.asList(ast.getExpression()));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            record(ast.getOperator(), Arrays.asList(ast.getLeft(), ast.getRight()));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            record(ast.getName(), Arrays.asList());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            record(ast.getName(), ast.getArguments());
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+final class TypeRegistryTests {
+
+    @Test
+    void testBuiltins() {
+        TypeRegistry first = new TypeRegistry();
+        TypeRegistry second = new TypeRegistry();
+        Assertions.assertSame(Environment.Type.INTEGER, first.getType("Integer"));
+        Assertions.assertSame(first.getType("String"), second.getType("String"));
+        Assertions.assertSame(Environment.Type.STRING, Environment.getType("String"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> first.registerType(
+                new Environment.Type("Integer", "int", new Scope(Environment.Type.ANY.getScope()))));
+    }
+
+    @Test
+    void testRegistration() {
+        TypeRegistry first = new TypeRegistry();
+        TypeRegistry second = new TypeRegistry();
+        Environment.Type point = new Environment.Type("Point", "Point", new Scope(Environment.Type.ANY.getScope()));
+        first.registerType(point);
+        Assertions.assertSame(point, first.getType("Point"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> first.registerType(point));
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> second.getType("Point"));
+        Assertions.assertEquals("Unknown type Point.", exception.getMessage());
+        Assertions.assertThrows(RuntimeException.class, () -> Environment.getType("Point"));
+    }
+
+    @Test
+    void testAnalyzer() {
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF origin(): Point DO END\n" +
+                "DEF main(): Integer DO END\n")).parseSource();
+        TypeRegistry types = new TypeRegistry();
+        types.registerType(new Environment.Type("Point", "Point", new Scope(Environment.Type.ANY.getScope())));
+        new ParallelAnalyzer(new Scope(null), types, ForkJoinPool.commonPool()).analyze(ast);
+        Assertions.assertEquals("Point", ast.getMethods().get(0).getFunction().getReturnType().getName());
+        Assertions.assertThrows(RuntimeException.class, () -> new ParallelAnalyzer(new Scope(null)).analyze(ast));
+    }
+
+}
@@ -0,0 +1,138 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the {@link InterpreterTests} programs and expressions on the
+ * {@link VirtualMachine}, expecting the same results.
+ */
+final class VirtualMachineTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testInterpreter(String test, Ast ast, Object expected) {
+        Scope scope = new Scope(null);
+        scope.defineVariable("variable", Environment.create("variable"));
+        scope.defineFunction("function", 0, args -> Environment.create("function"));
+        Scope object = new Scope(null);
+        object.defineVariable("field", Environment.create("object.field"));
+        object.defineFunction("method", 1, args -> Environment.create("object.method"));
+        scope.defineVariable("object", new Environment.PlcObject(object, "object"));
+
+        // Expressions are returned from main.
+        Ast.Source source = ast instanceof Ast.Source ? (Ast.Source) ast : new Ast.Source(Arrays.asList(),
+                Arrays.asList(new Ast.Method("main", Arrays.asList(), Arrays.asList(new Ast.Stmt.Return((Ast.Expr) ast)))));
+        VirtualMachine machine = new VirtualMachine(scope);
+        if (expected != null) {
+            Assertions.assertEquals(expected, machine.run(source).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> machine.run(source));
+        }
+    }
+
+    static Stream<Arguments> testInterpreter() {
+        return Stream.of(
+                InterpreterTests.testSource(),
+                InterpreterTests.testLiteralExpression(),
+                InterpreterTests.testGroupExpression(),
+                InterpreterTests.testBinaryExpression(),
+                InterpreterTests.testAccessExpression(),
+                InterpreterTests.testFunctionExpression()
+        ).flatMap(arguments -> arguments);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String source, Object expected) {
+        Ast.Source ast = new Parser(TokenBuffer.lex(source)).parseSource();
+        Assertions.assertEquals(expected, new VirtualMachine(new Scope(null)).run(ast).getValue());
+    }
+
+    static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Loop",
+                        "LET total: Integer = 0;\n" +
+                        "DEF main(): Integer DO\n" +
+                        "    LET i = 0;\n" +
+                        "    WHILE i < 10 DO\n" +
+                        "        total = total + (i - i / 2 * 2) * 3 - 1;\n" +
+                        "        i = i + 1;\n" +
+                        "    END\n" +
+                        "    RETURN total;\n" +
+                        "END\n",
+                        BigInteger.valueOf(5)
+                ),
+                Arguments.of("Blocks",
+                        "DEF main(): Integer DO\n" +
+                        "    LET x = 1;\n" +
+                        "    IF x == 1 DO LET y = 2; x = x + y; ELSE LET z = 3; x = z; END\n" +
+                        "    WHILE x < 10 DO LET y = x; x = y + 1; END\n" +
+                        "    RETURN x;\n" +
+                        "END\n",
+                        BigInteger.TEN
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n" +
+                        "    IF n < 2 DO RETURN n; END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\n" +
+                        "END\n" +
+                        "DEF main(): Integer DO RETURN fib(10); END\n",
+                        BigInteger.valueOf(55)
+                ),
+                Arguments.of("Logical",
+                        "DEF main(): Integer DO RETURN FALSE AND undefined OR TRUE AND (FALSE OR 1 != 2) OR undefined; END\n",
+                        true
+                ),
+                Arguments.of("Decimals",
+                        "LET x: Decimal = 1.2;\n" +
+                        "DEF main(): Decimal DO RETURN x / 3.4 + 0.5 * 2.0; END\n",
+                        new BigDecimal("1.40")
+                )
+        );
+    }
+
+    @Test
+    void testFor() {
+        Scope scope = new Scope(null);
+        scope.defineVariable("sum", Environment.create(BigInteger.ZERO));
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO\n" +
+                "    FOR num IN list DO sum = sum + num; END\n" +
+                "    RETURN sum;\n" +
+                "END\n")).parseSource();
+        Assertions.assertEquals(BigInteger.TEN, new VirtualMachine(scope).run(ast).getValue());
+        Assertions.assertEquals(BigInteger.TEN, scope.lookupVariable("sum").getValue().getValue());
+    }
+
+    @Test
+    void testFieldAssignment() {
+        Scope scope = new Scope(null);
+        Scope object = new Scope(null);
+        object.defineVariable("field", Environment.create("object.field"));
+        scope.defineVariable("object", new Environment.PlcObject(object, "object"));
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO object.field = 1; END\n")).parseSource();
+        Assertions.assertEquals(Environment.NIL.getValue(), new VirtualMachine(scope).run(ast).getValue());
+        Assertions.assertEquals(BigInteger.ONE, object.lookupVariable("field").getValue().getValue());
+    }
+
+    @Test
+    void testTypeError() {
+        Ast.Source ast = new Parser(TokenBuffer.lex("DEF main(): Integer DO WHILE 1 DO END END\n")).parseSource();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new VirtualMachine(new Scope(null)).run(ast));
+        Assertions.assertEquals("Expected type java.lang.Boolean, received java.math.BigInteger.", exception.getMessage());
+    }
+
+}